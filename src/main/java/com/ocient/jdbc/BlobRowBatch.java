@@ -0,0 +1,589 @@
+package com.ocient.jdbc;
+
+import java.math.BigDecimal;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+
+/*
+ * A batch that keeps the fetched blobs in wire format. Adding a blob only
+ * records where each row and each column starts, values are decoded when they
+ * are asked for. The numeric getters read straight out of the buffer so they
+ * never box.
+ */
+class BlobRowBatch extends RowBatch
+{
+	/*
+	 * Returns the offset just past the type tagged value starting at offset
+	 */
+	static int skipValue(final ByteBuffer bb, int offset) throws SQLException
+	{
+		final byte type = bb.get(offset);
+		offset++;
+		switch (type)
+		{
+			case 7: // Null
+				return offset;
+			case 8: // BOOL
+			case 10: // BYTE
+				return offset + 1;
+			case 11: // SHORT
+				return offset + 2;
+			case 1: // INT
+			case 3: // FLOAT
+			case 18: // IPV4
+				return offset + 4;
+			case 2: // LONG
+			case 4: // DOUBLE
+			case 6: // Timestamp
+			case 12: // TIME
+			case 19: // Date
+			case 20: // Timestamp w/ nanos
+			case 21: // Time w/ nanos
+				return offset + 8;
+			case 15: // UUID
+			case 16: // ST_POINT
+			case 17: // IP
+				return offset + 16;
+			case 5: // STRING
+			case 9: // BINARY
+				return offset + 4 + bb.getInt(offset);
+			case 13: // DECIMAL
+				return offset + 2 + XGResultSet.bcdLength(bb.get(offset));
+			case 14: // ARRAY
+				int nestedLevel = 0;
+				byte elementType = 0;
+				do
+				{
+					nestedLevel++;
+					elementType = bb.get(offset);
+					offset++;
+				}
+				while (elementType == 14);
+
+				return skipArray(bb, offset, nestedLevel);
+			default:
+				throw SQLStates.INVALID_COLUMN_TYPE.clone();
+		}
+	}
+
+	/*
+	 * True for an ARRAY that is entirely null, which decodes to null too
+	 */
+	private static boolean isNullArray(final ByteBuffer bb, int offset)
+	{
+		// Skip the tags of the nested levels and the element type
+		do
+		{
+			offset++;
+		}
+		while (bb.get(offset) == 14);
+
+		return bb.get(offset + 5) != 0;
+	}
+
+	private static int skipArray(final ByteBuffer bb, int offset, final int nestedLevel) throws SQLException
+	{
+		final int numElements = bb.getInt(offset);
+		offset += 4;
+		final boolean isEntirelyNull = bb.get(offset) != 0;
+		offset++;
+		if (isEntirelyNull)
+		{
+			return offset;
+		}
+
+		for (int i = 0; i < numElements; i++)
+		{
+			if (nestedLevel > 1)
+			{
+				offset = skipArray(bb, offset, nestedLevel - 1);
+			}
+			else
+			{
+				offset = skipValue(bb, offset);
+			}
+		}
+
+		return offset;
+	}
+
+	private final XGResultSet owner;
+	private final DataEndMarker dem = new DataEndMarker();
+
+	private ByteBuffer[] buffers = new ByteBuffer[4];
+	private int numBuffers = 0;
+	private long bytes = 0;
+
+	// Per entry, the index of its buffer or -1 for a DataEndMarker
+	private int[] entryBuffer = new int[1024];
+	// Per entry, the index of its first column in cellOffsets. Has one extra
+	// slot so that the column count of entry i is entryCell[i + 1] - entryCell[i]
+	private int[] entryCell = new int[1025];
+	private int numEntries = 0;
+
+	// Offset of the type tag of every column of every row, in row order
+	private int[] cellOffsets = new int[16384];
+	private int numCells = 0;
+
+	// Primitive copies of the fixed width columns, only built on request. A null
+	// entry means that column has to be read from the buffer
+	private ColumnVector[] vectors;
+
+	// getObject() and friends need the whole row, keep the last one around so
+	// that several getters on the same row only decode it once
+	private int decodedIndex = -1;
+	private ArrayList<Object> decodedRow;
+
+	BlobRowBatch(final XGResultSet owner)
+	{
+		this.owner = owner;
+	}
+
+	void addDataEnd()
+	{
+		addEntry(-1);
+	}
+
+	private void addEntry(final int buffer)
+	{
+		if (numEntries + 1 >= entryCell.length)
+		{
+			entryBuffer = Arrays.copyOf(entryBuffer, entryBuffer.length * 2);
+			entryCell = Arrays.copyOf(entryCell, entryCell.length * 2);
+		}
+
+		entryBuffer[numEntries] = buffer;
+		numEntries++;
+		entryCell[numEntries] = numCells;
+	}
+
+	/*
+	 * Indexes the rows in a blob and returns how many there were
+	 */
+	int addRows(final ByteBuffer bb) throws SQLException
+	{
+		if (numBuffers == buffers.length)
+		{
+			buffers = Arrays.copyOf(buffers, buffers.length * 2);
+		}
+
+		final int buffer = numBuffers;
+		buffers[numBuffers] = bb;
+		numBuffers++;
+		bytes += bb.limit();
+
+		final int numRows = bb.getInt(0);
+		int offset = 4;
+		for (int i = 0; i < numRows; i++)
+		{
+			final int rowLength = bb.getInt(offset);
+			final int end = offset + rowLength;
+			offset += 4;
+
+			while (offset < end)
+			{
+				if (numCells == cellOffsets.length)
+				{
+					cellOffsets = Arrays.copyOf(cellOffsets, cellOffsets.length * 2);
+				}
+
+				cellOffsets[numCells] = offset;
+				numCells++;
+				offset = skipValue(bb, offset);
+			}
+
+			addEntry(buffer);
+		}
+
+		return numRows;
+	}
+
+	private ByteBuffer buffer(final int index)
+	{
+		return buffers[entryBuffer[index]];
+	}
+
+	/*
+	 * Copies every column whose non null values all have the same fixed width
+	 * type into a ColumnVector, so the numeric getters become a single array read
+	 */
+	void buildColumnVectors()
+	{
+		// Only a trailing DataEndMarker is expected, and every row needs the same
+		// number of columns
+		int numRows = numEntries;
+		while (numRows > 0 && entryBuffer[numRows - 1] == -1)
+		{
+			numRows--;
+		}
+
+		if (numRows == 0)
+		{
+			return;
+		}
+
+		final int numCols = numColumns(0);
+		for (int i = 0; i < numRows; i++)
+		{
+			if (entryBuffer[i] == -1 || numColumns(i) != numCols)
+			{
+				return;
+			}
+		}
+
+		vectors = new ColumnVector[numCols];
+		for (int col = 0; col < numCols; col++)
+		{
+			byte type = 0;
+			for (int i = 0; i < numRows; i++)
+			{
+				final byte t = buffer(i).get(offset(i, col));
+				if (t == 7)
+				{
+					continue;
+				}
+
+				if (type == 0)
+				{
+					type = t;
+				}
+				else if (t != type)
+				{
+					type = -1;
+					break;
+				}
+			}
+
+			if (!ColumnVector.isFixedWidth(type))
+			{
+				continue;
+			}
+
+			final ColumnVector vector = new ColumnVector(type, numRows);
+			for (int i = 0; i < numRows; i++)
+			{
+				final ByteBuffer bb = buffer(i);
+				final int offset = offset(i, col);
+				if (bb.get(offset) == 7)
+				{
+					vector.setNull(i);
+					continue;
+				}
+
+				switch (type)
+				{
+					case 1:
+						vector.ints[i] = bb.getInt(offset + 1);
+						break;
+					case 8:
+						vector.ints[i] = bb.get(offset + 1) != 0 ? 1 : 0;
+						break;
+					case 10:
+						vector.ints[i] = bb.get(offset + 1);
+						break;
+					case 11:
+						vector.ints[i] = bb.getShort(offset + 1);
+						break;
+					case 3:
+						vector.doubles[i] = Float.intBitsToFloat(bb.getInt(offset + 1));
+						break;
+					case 4:
+						vector.doubles[i] = Double.longBitsToDouble(bb.getLong(offset + 1));
+						break;
+					default:
+						vector.longs[i] = bb.getLong(offset + 1);
+						break;
+				}
+			}
+
+			vectors[col] = vector;
+		}
+	}
+
+	@Override
+	long bytes()
+	{
+		return bytes;
+	}
+
+	/*
+	 * Empties the batch so it can be filled again, keeping the index arrays
+	 */
+	void clear()
+	{
+		Arrays.fill(buffers, 0, numBuffers, null);
+		numBuffers = 0;
+		bytes = 0;
+		numEntries = 0;
+		numCells = 0;
+		vectors = null;
+		decodedIndex = -1;
+		decodedRow = null;
+	}
+
+	private Object decode(final ByteBuffer bb, final int offset) throws SQLException
+	{
+		try
+		{
+			final int[] off = new int[1];
+			off[0] = offset;
+			return owner.decodeValue(bb, off);
+		}
+		catch (final Exception e)
+		{
+			if (e instanceof SQLException)
+			{
+				throw (SQLException) e;
+			}
+
+			throw SQLStates.newGenericException(e);
+		}
+	}
+
+	@Override
+	Object get(final int index) throws SQLException
+	{
+		if (entryBuffer[index] == -1)
+		{
+			return dem;
+		}
+
+		if (index != decodedIndex)
+		{
+			final ByteBuffer bb = buffer(index);
+			final ArrayList<Object> alo = new ArrayList<>(entryCell[index + 1] - entryCell[index]);
+			for (int i = entryCell[index]; i < entryCell[index + 1]; i++)
+			{
+				alo.add(decode(bb, cellOffsets[i]));
+			}
+
+			decodedRow = alo;
+			decodedIndex = index;
+		}
+
+		return decodedRow;
+	}
+
+	private BigDecimal getDecimal(final ByteBuffer bb, final int offset)
+	{
+		return owner.getDecimalFromBuffer(bb, offset + 1);
+	}
+
+	@Override
+	double getDouble(final int index, final int col) throws SQLException
+	{
+		final ColumnVector vector = vector(col);
+		if (vector != null && vector.isNumber())
+		{
+			if (vector.ints != null)
+			{
+				return vector.ints[index];
+			}
+
+			if (vector.longs != null)
+			{
+				return vector.longs[index];
+			}
+
+			return vector.doubles[index];
+		}
+
+		final ByteBuffer bb = buffer(index);
+		final int offset = offset(index, col);
+		switch (bb.get(offset))
+		{
+			case 1:
+				return bb.getInt(offset + 1);
+			case 2:
+				return bb.getLong(offset + 1);
+			case 3:
+				return Float.intBitsToFloat(bb.getInt(offset + 1));
+			case 4:
+				return Double.longBitsToDouble(bb.getLong(offset + 1));
+			case 10:
+				return bb.get(offset + 1);
+			case 11:
+				return bb.getShort(offset + 1);
+			case 13:
+				return getDecimal(bb, offset).doubleValue();
+			default:
+				throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
+		}
+	}
+
+	@Override
+	int getInt(final int index, final int col) throws SQLException
+	{
+		final ColumnVector vector = vector(col);
+		if (vector != null && vector.isNumber())
+		{
+			if (vector.ints != null)
+			{
+				return vector.ints[index];
+			}
+
+			if (vector.longs != null)
+			{
+				return (int) vector.longs[index];
+			}
+
+			return (int) vector.doubles[index];
+		}
+
+		final ByteBuffer bb = buffer(index);
+		final int offset = offset(index, col);
+		switch (bb.get(offset))
+		{
+			case 1:
+				return bb.getInt(offset + 1);
+			case 2:
+				return (int) bb.getLong(offset + 1);
+			case 3:
+				return (int) Float.intBitsToFloat(bb.getInt(offset + 1));
+			case 4:
+				return (int) Double.longBitsToDouble(bb.getLong(offset + 1));
+			case 10:
+				return bb.get(offset + 1);
+			case 11:
+				return bb.getShort(offset + 1);
+			case 13:
+				return getDecimal(bb, offset).intValue();
+			default:
+				throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
+		}
+	}
+
+	@Override
+	long getLong(final int index, final int col) throws SQLException
+	{
+		final ColumnVector vector = vector(col);
+		if (vector != null && vector.isNumber())
+		{
+			if (vector.ints != null)
+			{
+				return vector.ints[index];
+			}
+
+			if (vector.longs != null)
+			{
+				return vector.longs[index];
+			}
+
+			return (long) vector.doubles[index];
+		}
+
+		final ByteBuffer bb = buffer(index);
+		final int offset = offset(index, col);
+		switch (bb.get(offset))
+		{
+			case 1:
+				return bb.getInt(offset + 1);
+			case 2:
+				return bb.getLong(offset + 1);
+			case 3:
+				return (long) Float.intBitsToFloat(bb.getInt(offset + 1));
+			case 4:
+				return (long) Double.longBitsToDouble(bb.getLong(offset + 1));
+			case 10:
+				return bb.get(offset + 1);
+			case 11:
+				return bb.getShort(offset + 1);
+			case 13:
+				return getDecimal(bb, offset).longValue();
+			default:
+				throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
+		}
+	}
+
+	@Override
+	Object getObject(final int index, final int col) throws SQLException
+	{
+		if (index == decodedIndex)
+		{
+			return decodedRow.get(col);
+		}
+
+		return decode(buffer(index), offset(index, col));
+	}
+
+	@Override
+	String getString(final int index, final int col) throws SQLException
+	{
+		final ByteBuffer bb = buffer(index);
+		final int offset = offset(index, col);
+		if (bb.get(offset) == 5) // STRING
+		{
+			final int stringLength = bb.getInt(offset + 1);
+			final byte[] dst = new byte[stringLength];
+			// A duplicate, so the position of the frame's buffer is left alone
+			final ByteBuffer src = bb.duplicate();
+			((Buffer) src).position(offset + 5);
+			src.get(dst);
+			return new String(dst, Charsets.UTF_8);
+		}
+
+		return decode(bb, offset).toString();
+	}
+
+	@Override
+	boolean isDataEnd(final int index)
+	{
+		return entryBuffer[index] == -1;
+	}
+
+	@Override
+	boolean isNull(final int index, final int col)
+	{
+		final ColumnVector vector = vector(col);
+		if (vector != null)
+		{
+			return vector.isNull(index);
+		}
+
+		final ByteBuffer bb = buffer(index);
+		final int offset = offset(index, col);
+		final byte type = bb.get(offset);
+		return type == 7 || type == 14 && isNullArray(bb, offset);
+	}
+
+	@Override
+	boolean isNumber(final int index, final int col)
+	{
+		final ColumnVector vector = vector(col);
+		if (vector != null)
+		{
+			return vector.isNumber();
+		}
+
+		final byte type = buffer(index).get(offset(index, col));
+		return type == 1 || type == 2 || type == 3 || type == 4 || type == 10 || type == 11 || type == 13;
+	}
+
+	@Override
+	int numColumns(final int index)
+	{
+		return entryCell[index + 1] - entryCell[index];
+	}
+
+	private int offset(final int index, final int col)
+	{
+		return cellOffsets[entryCell[index] + col];
+	}
+
+	@Override
+	int size()
+	{
+		return numEntries;
+	}
+
+	@Override
+	ColumnVector vector(final int col)
+	{
+		return vectors == null ? null : vectors[col];
+	}
+}
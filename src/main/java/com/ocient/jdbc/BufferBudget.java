@@ -0,0 +1,58 @@
+package com.ocient.jdbc;
+
+import java.util.function.BooleanSupplier;
+
+/*
+ * A byte budget for fetched data that has been received but not yet read by
+ * the application. A limit of 0 or less means no limit.
+ */
+final class BufferBudget
+{
+	private long limit;
+	private long used = 0;
+
+	BufferBudget(final long limit)
+	{
+		this.limit = limit;
+	}
+
+	/*
+	 * Charges bytes against the budget, waiting while that would go over the
+	 * limit and canWait says it is ok to wait. Something that is already over
+	 * the limit can always be charged once nothing else is.
+	 */
+	synchronized void acquire(final long bytes, final BooleanSupplier canWait) throws InterruptedException
+	{
+		while (limit > 0 && used > 0 && used + bytes > limit && canWait.getAsBoolean())
+		{
+			wait();
+		}
+
+		used += bytes;
+	}
+
+	synchronized void release(final long bytes)
+	{
+		used -= bytes;
+		notifyAll();
+	}
+
+	synchronized void setLimit(final long limit)
+	{
+		this.limit = limit;
+		notifyAll();
+	}
+
+	synchronized long used()
+	{
+		return used;
+	}
+
+	/*
+	 * Makes waiters check canWait again
+	 */
+	synchronized void wakeUp()
+	{
+		notifyAll();
+	}
+}
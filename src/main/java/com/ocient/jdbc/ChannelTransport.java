@@ -0,0 +1,250 @@
+package com.ocient.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/*
+ * The transport used for unencrypted connections with transport=CHANNEL. Reads
+ * scatter into the caller's array and a direct read ahead buffer at once, so a
+ * whole frame lands where it is parsed and the start of the next frame comes
+ * along with the same read. Writes are gathered into one large buffer and go
+ * out on flush.
+ *
+ * The channel is non-blocking and the streams wait on selectors, since a
+ * blocking channel ignores the socket's SO_TIMEOUT. Reads honour
+ * setSoTimeout() on the channel's socket like socket reads do, throwing
+ * SocketTimeoutException. Interrupting a waiting thread closes the channel,
+ * and closing a stream wakes a thread waiting on it, as they would for a
+ * blocking channel.
+ */
+final class ChannelTransport
+{
+	// Size of the read ahead and write buffers
+	static final int BUFFER_SIZE = 1024 * 1024;
+
+	/*
+	 * Reads from the channel, handing out read ahead bytes before going back to
+	 * the channel
+	 */
+	static final class ChannelInputStream extends InputStream
+	{
+		private final SocketChannel channel;
+		private final Selector selector;
+		private final ByteBuffer readAhead = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final ByteBuffer[] scatter = new ByteBuffer[2];
+
+		ChannelInputStream(final SocketChannel channel) throws IOException
+		{
+			this.channel = channel;
+			selector = Selector.open();
+			channel.register(selector, SelectionKey.OP_READ);
+			readAhead.flip();
+			scatter[1] = readAhead;
+		}
+
+		@Override
+		public int available()
+		{
+			return readAhead.remaining();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				channel.close();
+			}
+			finally
+			{
+				selector.close();
+			}
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException
+		{
+			if (len == 0)
+			{
+				return 0;
+			}
+
+			if (readAhead.hasRemaining())
+			{
+				final int n = Math.min(len, readAhead.remaining());
+				readAhead.get(b, off, n);
+				return n;
+			}
+
+			readAhead.clear();
+			scatter[0] = ByteBuffer.wrap(b, off, len);
+			long n;
+			try
+			{
+				final int timeoutMillis = channel.socket().getSoTimeout();
+				final long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+				while ((n = channel.read(scatter)) == 0)
+				{
+					if (!await(channel, selector, timeoutMillis == 0 ? 0 : deadline))
+					{
+						throw new SocketTimeoutException("Read timed out");
+					}
+				}
+			}
+			finally
+			{
+				scatter[0] = null;
+				readAhead.flip();
+			}
+
+			if (n < 0)
+			{
+				return -1;
+			}
+
+			return (int) Math.min(n, len);
+		}
+	}
+
+	/*
+	 * Writes straight to the channel, callers are expected to buffer
+	 */
+	static final class ChannelOutputStream extends OutputStream
+	{
+		private final SocketChannel channel;
+		private final Selector selector;
+
+		ChannelOutputStream(final SocketChannel channel) throws IOException
+		{
+			this.channel = channel;
+			selector = Selector.open();
+			channel.register(selector, SelectionKey.OP_WRITE);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				channel.close();
+			}
+			finally
+			{
+				selector.close();
+			}
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException
+		{
+			final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+			while (bb.hasRemaining())
+			{
+				if (channel.write(bb) == 0)
+				{
+					await(channel, selector, 0);
+				}
+			}
+		}
+
+		@Override
+		public void write(final int b) throws IOException
+		{
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+	}
+
+	/*
+	 * Waits until the channel is ready for what selector watches. Returns false
+	 * if the deadline (System.nanoTime(), 0 for none) passed first.
+	 */
+	private static boolean await(final SocketChannel channel, final Selector selector, final long deadline) throws IOException
+	{
+		while (true)
+		{
+			long waitMillis = 0;
+			if (deadline != 0)
+			{
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+				{
+					return false;
+				}
+
+				waitMillis = Math.max(1, remaining / 1000000);
+			}
+
+			final int ready;
+			try
+			{
+				ready = selector.select(waitMillis);
+				selector.selectedKeys().clear();
+			}
+			catch (final ClosedSelectorException e)
+			{
+				// The stream was closed by another thread
+				throw new AsynchronousCloseException();
+			}
+
+			if (!channel.isOpen())
+			{
+				throw new AsynchronousCloseException();
+			}
+
+			if (Thread.currentThread().isInterrupted())
+			{
+				channel.close();
+				throw new ClosedByInterruptException();
+			}
+
+			if (ready > 0)
+			{
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Opens a non-blocking channel to the given address, connecting within
+	 * timeoutMillis
+	 */
+	static SocketChannel open(final String ip, final int port, final int timeoutMillis, final int socketBufferSize) throws IOException
+	{
+		final SocketChannel channel = SocketChannel.open();
+		try
+		{
+			channel.setOption(StandardSocketOptions.SO_RCVBUF, socketBufferSize);
+			channel.setOption(StandardSocketOptions.SO_SNDBUF, socketBufferSize);
+			channel.socket().connect(new InetSocketAddress(ip, port), timeoutMillis);
+			channel.configureBlocking(false);
+			return channel;
+		}
+		catch (final IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	private ChannelTransport()
+	{
+	}
+}
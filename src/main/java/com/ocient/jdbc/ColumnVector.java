@@ -0,0 +1,82 @@
+package com.ocient.jdbc;
+
+/*
+ * The values of one fixed width column of a fetched batch, stored in a
+ * primitive array indexed by row. INT, BYTE, SHORT and BOOL (as 0 or 1) go in
+ * ints, LONG, TIMESTAMP, TIME and DATE (as their raw wire value) in longs and
+ * FLOAT and DOUBLE in doubles. Nulls are tracked in a bitmap.
+ */
+final class ColumnVector
+{
+	/*
+	 * Returns true if columns with this wire type can be stored in a vector
+	 */
+	static boolean isFixedWidth(final byte type)
+	{
+		switch (type)
+		{
+			case 1: // INT
+			case 2: // LONG
+			case 3: // FLOAT
+			case 4: // DOUBLE
+			case 6: // Timestamp
+			case 8: // BOOL
+			case 10: // BYTE
+			case 11: // SHORT
+			case 12: // TIME
+			case 19: // Date
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	final byte type;
+	final int[] ints;
+	final long[] longs;
+	final double[] doubles;
+	private final long[] nulls;
+
+	ColumnVector(final byte type, final int numRows)
+	{
+		this.type = type;
+		nulls = new long[(numRows + 63) >>> 6];
+		switch (type)
+		{
+			case 1:
+			case 8:
+			case 10:
+			case 11:
+				ints = new int[numRows];
+				longs = null;
+				doubles = null;
+				break;
+			case 3:
+			case 4:
+				ints = null;
+				longs = null;
+				doubles = new double[numRows];
+				break;
+			default:
+				ints = null;
+				longs = new long[numRows];
+				doubles = null;
+				break;
+		}
+	}
+
+	boolean isNull(final int row)
+	{
+		return (nulls[row >>> 6] & 1L << row) != 0;
+	}
+
+	boolean isNumber()
+	{
+		return ints != null && type != 8 || doubles != null || type == 2;
+	}
+
+	void setNull(final int row)
+	{
+		nulls[row >>> 6] |= 1L << row;
+	}
+}
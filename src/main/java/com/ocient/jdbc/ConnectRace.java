@@ -0,0 +1,136 @@
+package com.ocient.jdbc;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Connects to several candidates at once, happy eyeballs style. Attempts start
+ * in order, the next one when the previous has run for staggerMillis without
+ * finishing or as soon as it fails. The first attempt to succeed wins, the ones
+ * that haven't started never do, and the ones still running are handed to
+ * discard when they succeed too.
+ */
+final class ConnectRace
+{
+	interface Attempt<T>
+	{
+		T connect() throws Exception;
+	}
+
+	private static final class Outcome<T>
+	{
+		private final T value;
+		private final Exception error;
+
+		private Outcome(final T value, final Exception error)
+		{
+			this.value = value;
+			this.error = error;
+		}
+	}
+
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
+
+	/*
+	 * Returns the result of the first attempt to succeed, or throws the exception
+	 * of the last one to fail if none do
+	 */
+	static <T> T first(final List<Attempt<T>> attempts, final long staggerMillis, final Consumer<T> discard) throws Exception
+	{
+		if (attempts.isEmpty())
+		{
+			throw new IllegalArgumentException("Nothing to connect to");
+		}
+
+		final LinkedBlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+		// Guarded by outcomes, set once we have a winner
+		final boolean[] decided = new boolean[1];
+
+		int started = 0;
+		int finished = 0;
+		Exception lastError = null;
+		try
+		{
+			start(attempts.get(started++), outcomes, decided, discard);
+			while (finished < attempts.size())
+			{
+				final Outcome<T> outcome = started < attempts.size() ? outcomes.poll(staggerMillis, TimeUnit.MILLISECONDS) : outcomes.take();
+				if (outcome == null)
+				{
+					LOGGER.log(Level.INFO, String.format("Connect attempt %d is taking more than %d ms, starting the next one", started, staggerMillis));
+					start(attempts.get(started++), outcomes, decided, discard);
+					continue;
+				}
+
+				finished++;
+				if (outcome.error == null)
+				{
+					return outcome.value;
+				}
+
+				lastError = outcome.error;
+				if (started < attempts.size())
+				{
+					start(attempts.get(started++), outcomes, decided, discard);
+				}
+			}
+		}
+		finally
+		{
+			synchronized (outcomes)
+			{
+				decided[0] = true;
+			}
+
+			Outcome<T> outcome;
+			while ((outcome = outcomes.poll()) != null)
+			{
+				if (outcome.error == null)
+				{
+					discard.accept(outcome.value);
+				}
+			}
+		}
+
+		throw lastError;
+	}
+
+	private static <T> void start(final Attempt<T> attempt, final LinkedBlockingQueue<Outcome<T>> outcomes, final boolean[] decided, final Consumer<T> discard)
+	{
+		DriverScheduler.execute(() ->
+		{
+			Outcome<T> outcome;
+			try
+			{
+				outcome = new Outcome<>(attempt.connect(), null);
+			}
+			catch (final Exception e)
+			{
+				LOGGER.log(Level.WARNING, String.format("Connect attempt failed with exception %s with message %s", e.toString(), e.getMessage()));
+				outcome = new Outcome<>(null, e);
+			}
+
+			synchronized (outcomes)
+			{
+				if (!decided[0])
+				{
+					outcomes.add(outcome);
+					return;
+				}
+			}
+
+			if (outcome.error == null)
+			{
+				discard.accept(outcome.value);
+			}
+		});
+	}
+
+	private ConnectRace()
+	{
+	}
+}
@@ -0,0 +1,136 @@
+package com.ocient.jdbc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * One daemon thread shared by the whole driver for delayed work: query
+ * timeouts, returning statements to the cache and the session pool sweep.
+ * This replaces a Timer thread per connection or statement. Cancelled tasks
+ * are taken off the queue right away, so nothing piles up when timeouts are
+ * cancelled.
+ *
+ * Scheduled tasks must be short. Anything that blocks, like reconnecting to
+ * kill a timed out query, goes to execute(), which runs it on a cached pool of
+ * daemon threads.
+ *
+ * Calls made through the async statement API run on their own small pool
+ * instead, so thousands of outstanding queries wait in its queue rather than
+ * each holding a thread.
+ */
+final class DriverScheduler
+{
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
+
+	private static final ScheduledThreadPoolExecutor scheduler = newScheduler();
+	private static final ExecutorService workers = Executors.newCachedThreadPool(newThreadFactory("XGDriver-worker-"));
+	private static final ThreadPoolExecutor async = newAsyncPool();
+
+	/*
+	 * Runs a task that may block on a worker thread
+	 */
+	static void execute(final Runnable task)
+	{
+		workers.execute(logged(task));
+	}
+
+	/*
+	 * Runs a call for the async API, growing the pool to threads first if it is
+	 * smaller. The pool never shrinks below the largest size asked for, though
+	 * idle threads exit.
+	 */
+	static void executeAsync(final Runnable task, final int threads)
+	{
+		if (async.getMaximumPoolSize() < threads)
+		{
+			synchronized (async)
+			{
+				if (async.getMaximumPoolSize() < threads)
+				{
+					async.setMaximumPoolSize(threads);
+					async.setCorePoolSize(threads);
+				}
+			}
+		}
+
+		async.execute(logged(task));
+	}
+
+	/*
+	 * Returns the number of tasks waiting to run, cancelled ones excluded
+	 */
+	static int getPendingTasks()
+	{
+		return scheduler.getQueue().size();
+	}
+
+	private static Runnable logged(final Runnable task)
+	{
+		return () ->
+		{
+			try
+			{
+				task.run();
+			}
+			catch (final Exception e)
+			{
+				LOGGER.log(Level.WARNING, String.format("Scheduled task failed with exception %s with message %s", e.toString(), e.getMessage()));
+			}
+		};
+	}
+
+	private static ThreadPoolExecutor newAsyncPool()
+	{
+		final ThreadPoolExecutor retval = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), newThreadFactory("XGDriver-async-"));
+		retval.allowCoreThreadTimeOut(true);
+		return retval;
+	}
+
+	private static ScheduledThreadPoolExecutor newScheduler()
+	{
+		final ScheduledThreadPoolExecutor retval = new ScheduledThreadPoolExecutor(1, newThreadFactory("XGDriver-scheduler-"));
+		retval.setRemoveOnCancelPolicy(true);
+		return retval;
+	}
+
+	private static ThreadFactory newThreadFactory(final String prefix)
+	{
+		final AtomicInteger count = new AtomicInteger();
+		return r ->
+		{
+			final Thread thread = new Thread(r, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/*
+	 * Runs task once after the delay. An exception from the task is logged
+	 * rather than lost in the returned future.
+	 */
+	static ScheduledFuture<?> schedule(final Runnable task, final long delay, final TimeUnit unit)
+	{
+		return scheduler.schedule(logged(task), delay, unit);
+	}
+
+	/*
+	 * Runs task every period until the returned future is cancelled
+	 */
+	static ScheduledFuture<?> scheduleAtFixedRate(final Runnable task, final long period, final TimeUnit unit)
+	{
+		return scheduler.scheduleAtFixedRate(logged(task), period, period, unit);
+	}
+
+	private DriverScheduler()
+	{
+	}
+}
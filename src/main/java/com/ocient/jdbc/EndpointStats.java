@@ -0,0 +1,126 @@
+package com.ocient.jdbc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ * What this JVM has seen of each SQL node endpoint ("ip:port"): how long
+ * connecting to it takes, how many sessions were opened to it lately and
+ * whether it failed recently. With endpointSelection=LEAST_LOADED candidates
+ * are tried in the order this gives, so connections spread over the nodes
+ * instead of all going to the first one listed.
+ *
+ * An endpoint scores the number of connections opened to it, decaying by half
+ * every HALF_LIFE_MILLIS, plus a tenth of its smoothed connect time in
+ * milliseconds. Endpoints that failed within FAILURE_PENALTY_MILLIS go last,
+ * and ones with no history score 0 so they get tried.
+ */
+final class EndpointStats
+{
+	private static final class Stats
+	{
+		private double connectMillis = -1;
+		private double recent = 0;
+		private long recentAt = 0;
+		private long failedAt = 0;
+
+		private double recent(final long now)
+		{
+			return recent * Math.pow(0.5, (double) (now - recentAt) / HALF_LIFE_MILLIS);
+		}
+
+		private double score(final long now)
+		{
+			if (failedAt != 0 && now - failedAt < FAILURE_PENALTY_MILLIS)
+			{
+				return Double.MAX_VALUE;
+			}
+
+			return recent(now) + Math.max(connectMillis, 0) / 10;
+		}
+	}
+
+	private static final long HALF_LIFE_MILLIS = 10000;
+	private static final long FAILURE_PENALTY_MILLIS = 30000;
+	private static final double SMOOTHING = 0.25;
+	private static final int MAX_ENDPOINTS = 1024;
+
+	private static final HashMap<String, Stats> stats = new HashMap<>();
+
+	/*
+	 * Records a successful connect to ip:port that took nanos
+	 */
+	static synchronized void connected(final String ip, final int port, final long nanos)
+	{
+		final long now = System.currentTimeMillis();
+		final Stats s = get(ip + ":" + port);
+		final double millis = nanos / 1000000.0;
+		s.connectMillis = s.connectMillis < 0 ? millis : s.connectMillis + SMOOTHING * (millis - s.connectMillis);
+		s.recent = s.recent(now) + 1;
+		s.recentAt = now;
+		s.failedAt = 0;
+	}
+
+	/*
+	 * Records a failed connect to ip:port
+	 */
+	static synchronized void failed(final String ip, final int port)
+	{
+		get(ip + ":" + port).failedAt = System.currentTimeMillis();
+	}
+
+	private static Stats get(final String address)
+	{
+		Stats s = stats.get(address);
+		if (s == null)
+		{
+			if (stats.size() >= MAX_ENDPOINTS)
+			{
+				final Iterator<Stats> it = stats.values().iterator();
+				it.next();
+				it.remove();
+			}
+
+			s = new Stats();
+			stats.put(address, s);
+		}
+
+		return s;
+	}
+
+	/*
+	 * Returns items best first, each scoring as the best of its addresses. Items
+	 * that score the same keep their order.
+	 */
+	static <T> List<T> leastLoadedFirst(final List<T> items, final Function<T, List<String>> addresses)
+	{
+		final IdentityHashMap<T, Double> scores = new IdentityHashMap<>();
+		synchronized (EndpointStats.class)
+		{
+			final long now = System.currentTimeMillis();
+			for (final T item : items)
+			{
+				double best = Double.MAX_VALUE;
+				for (final String address : addresses.apply(item))
+				{
+					final Stats s = stats.get(address);
+					best = Math.min(best, s == null ? 0 : s.score(now));
+				}
+
+				scores.put(item, best);
+			}
+		}
+
+		final ArrayList<T> retval = new ArrayList<>(items);
+		retval.sort((a, b) -> Double.compare(scores.get(a), scores.get(b)));
+		return retval;
+	}
+
+	private EndpointStats()
+	{
+	}
+}
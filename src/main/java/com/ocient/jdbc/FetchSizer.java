@@ -0,0 +1,107 @@
+package com.ocient.jdbc;
+
+/*
+ * Picks the fetch size for each FetchData request of a result set when
+ * adaptiveFetchSize is on. Two limits are tracked and the smaller one wins:
+ * the rows that fit in the target number of bytes, given the bytes per row seen
+ * in earlier responses, and the rows the application reads in the target
+ * number of milliseconds, given how fast it has been reading. The size moves by
+ * at most a factor of 2 per request and is kept between MIN and MAX, or between
+ * the fetch size the application set and MAX when it set one below MIN.
+ */
+final class FetchSizer
+{
+	static final int MIN = 1000;
+	static final int MAX = 1000000;
+
+	// Weight given to the newest sample in the moving averages
+	private static final double ALPHA = 0.5;
+
+	private final long targetBytes;
+	private final long targetMillis;
+	private int min;
+	private int fetchSize;
+
+	private double bytesPerRow = -1;
+	private double rowsPerMilli = -1;
+
+	// When the application last got a batch, and how many rows were in it
+	private long lastTakeNanos = -1;
+	private int lastTakeRows = 0;
+
+	FetchSizer(final int fetchSize, final long targetBytes, final long targetMillis)
+	{
+		this.targetBytes = targetBytes;
+		this.targetMillis = targetMillis;
+		setFetchSize(fetchSize);
+	}
+
+	private void adjust()
+	{
+		long wanted = MAX;
+		if (bytesPerRow > 0 && targetBytes > 0)
+		{
+			wanted = Math.min(wanted, (long) (targetBytes / bytesPerRow));
+		}
+
+		if (rowsPerMilli > 0 && targetMillis > 0)
+		{
+			wanted = Math.min(wanted, (long) (rowsPerMilli * targetMillis));
+		}
+
+		wanted = Math.max(wanted, fetchSize / 2);
+		wanted = Math.min(wanted, (long) fetchSize * 2);
+		fetchSize = (int) Math.max(min, Math.min(MAX, wanted));
+	}
+
+	/*
+	 * Called by the consumer right before it blocks for the next batch. Only the
+	 * time spent going through the previous batch counts, not the wait for data.
+	 */
+	synchronized void beforeTake()
+	{
+		if (lastTakeNanos >= 0 && lastTakeRows > 0)
+		{
+			final double millis = Math.max(1, (System.nanoTime() - lastTakeNanos) / 1000000.0);
+			final double rate = lastTakeRows / millis;
+			rowsPerMilli = rowsPerMilli < 0 ? rate : ALPHA * rate + (1 - ALPHA) * rowsPerMilli;
+			adjust();
+		}
+	}
+
+	/*
+	 * Called by the consumer once it has the next batch
+	 */
+	synchronized void afterTake(final int rows)
+	{
+		lastTakeNanos = System.nanoTime();
+		lastTakeRows = rows;
+	}
+
+	/*
+	 * Called by a fetch thread for every response it gets
+	 */
+	synchronized void fetched(final int rows, final long bytes)
+	{
+		if (rows > 0 && bytes > 0)
+		{
+			final double sample = (double) bytes / rows;
+			bytesPerRow = bytesPerRow < 0 ? sample : ALPHA * sample + (1 - ALPHA) * bytesPerRow;
+			adjust();
+		}
+	}
+
+	synchronized int getFetchSize()
+	{
+		return fetchSize;
+	}
+
+	/*
+	 * Starts over from the fetch size the application set
+	 */
+	synchronized void setFetchSize(final int fetchSize)
+	{
+		min = Math.min(MIN, fetchSize);
+		this.fetchSize = Math.max(min, Math.min(MAX, fetchSize));
+	}
+}
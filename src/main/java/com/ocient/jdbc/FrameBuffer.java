@@ -0,0 +1,91 @@
+package com.ocient.jdbc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+
+/*
+ * Reads the length prefixed frames the server sends. Each connection has one,
+ * and only the thread that owns the connection's socket at the time may use
+ * it.
+ *
+ * Most responses are small and are fully copied out by protobuf when parsed,
+ * so they are read into a buffer that is reused from frame to frame. Frames
+ * that carry result set blobs are read into a buffer of their own instead and
+ * parsed with aliasing on, so the blobs are views of that buffer rather than
+ * copies of it. Those buffers are never reused since the row batches keep
+ * pointing into them.
+ */
+final class FrameBuffer
+{
+	// Don't hold on to a buffer bigger than this between frames
+	private static final int MAX_RETAINED = 4 * 1024 * 1024;
+	private static final int INITIAL_SIZE = 8 * 1024;
+
+	private final byte[] header = new byte[4];
+	private byte[] buffer = new byte[INITIAL_SIZE];
+
+	private static void readFully(final InputStream in, final byte[] data, final int length) throws IOException
+	{
+		int count = 0;
+		while (count < length)
+		{
+			final int temp = in.read(data, count, length - count);
+			if (temp == -1)
+			{
+				throw new EOFException();
+			}
+
+			count += temp;
+		}
+	}
+
+	/*
+	 * Parses the rest of a frame into builder, sharing the frame's memory for
+	 * bytes fields. The frame must not be changed afterwards.
+	 */
+	void mergeAliased(final InputStream in, final int length, final Message.Builder builder) throws IOException
+	{
+		final byte[] data = new byte[length];
+		readFully(in, data, length);
+		final CodedInputStream input = UnsafeByteOperations.unsafeWrap(data).newCodedInput();
+		input.enableAliasing(true);
+		builder.mergeFrom(input);
+		input.checkLastTagWas(0);
+	}
+
+	/*
+	 * Parses the rest of a frame into builder, using the reusable buffer when the
+	 * frame fits
+	 */
+	void merge(final InputStream in, final int length, final Message.Builder builder) throws IOException
+	{
+		byte[] data = buffer;
+		if (length > data.length)
+		{
+			data = new byte[Math.max(length, Math.min(MAX_RETAINED, data.length * 2))];
+			if (data.length <= MAX_RETAINED)
+			{
+				buffer = data;
+			}
+		}
+
+		readFully(in, data, length);
+		final CodedInputStream input = CodedInputStream.newInstance(data, 0, length);
+		builder.mergeFrom(input);
+		input.checkLastTagWas(0);
+	}
+
+	/*
+	 * Reads the length at the start of a frame
+	 */
+	int readLength(final InputStream in) throws IOException
+	{
+		readFully(in, header, 4);
+		return ((header[0] & 0xff) << 24) | ((header[1] & 0xff) << 16) | ((header[2] & 0xff) << 8) | (header[3] & 0xff);
+	}
+}
@@ -0,0 +1,117 @@
+package com.ocient.jdbc;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.spec.DHParameterSpec;
+
+/*
+ * Client Diffie-Hellman key pairs generated ahead of time for the groups the
+ * servers use, so a handshake only has to do the key agreement. Generating the
+ * key pair is the slowest step of the handshake. Each pair is used for one
+ * handshake only, and spent pairs are replaced on a worker thread.
+ */
+final class HandshakeKeys
+{
+	private static final class Spares
+	{
+		private final DHParameterSpec params;
+		private final ConcurrentLinkedQueue<KeyPair> pairs = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+		private Spares(final DHParameterSpec params)
+		{
+			this.params = params;
+		}
+	}
+
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
+
+	// Servers normally share one group, so this is only a guard against holding
+	// spares for groups that are no longer used
+	private static final int MAX_GROUPS = 16;
+
+	private static final ConcurrentHashMap<List<Object>, Spares> spares = new ConcurrentHashMap<>();
+
+	private static KeyPair generate(final DHParameterSpec params) throws Exception
+	{
+		final KeyPairGenerator keyGen = KeyPairGenerator.getInstance("DH");
+		keyGen.initialize(params);
+		return keyGen.generateKeyPair();
+	}
+
+	private static void refill(final Spares group, final int target)
+	{
+		if (group.size.get() >= target || !group.refilling.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		DriverScheduler.execute(() ->
+		{
+			try
+			{
+				while (group.size.get() < target)
+				{
+					group.pairs.add(generate(group.params));
+					group.size.incrementAndGet();
+				}
+			}
+			catch (final Exception e)
+			{
+				LOGGER.log(Level.WARNING, String.format("Generating spare handshake keys failed with exception %s with message %s", e.toString(), e.getMessage()));
+			}
+			finally
+			{
+				group.refilling.set(false);
+			}
+		});
+	}
+
+	/*
+	 * Returns a key pair for params that has never been used, keeping up to spare
+	 * more generated in the background. With spare 0 the pair is generated on the
+	 * calling thread and nothing is kept.
+	 */
+	static KeyPair take(final DHParameterSpec params, final int spare) throws Exception
+	{
+		if (spare <= 0)
+		{
+			return generate(params);
+		}
+
+		final List<Object> key = Arrays.asList(params.getP(), params.getG(), params.getL());
+		Spares group = spares.get(key);
+		if (group == null)
+		{
+			if (spares.size() >= MAX_GROUPS)
+			{
+				spares.clear();
+			}
+
+			group = spares.computeIfAbsent(key, k -> new Spares(params));
+		}
+
+		final KeyPair retval = group.pairs.poll();
+		if (retval != null)
+		{
+			group.size.decrementAndGet();
+		}
+
+		refill(group, spare);
+		return retval != null ? retval : generate(params);
+	}
+
+	private HandshakeKeys()
+	{
+	}
+}
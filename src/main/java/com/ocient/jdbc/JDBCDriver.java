@@ -8,7 +8,11 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
@@ -186,6 +190,14 @@ public class JDBCDriver implements Driver
 			}
 
 			configLogger(arg1);
+			final long raceMillis = Long.parseLong(arg1.getProperty("raceConnectMillis", "0"));
+			if (raceMillis > 0)
+			{
+				final XGConnection conn = raceConnections(hostList, db, arg1, raceMillis);
+				conn.startStandby();
+				return conn;
+			}
+
 			Exception lastException = null;
 			for (final String host : hostList)
 			{
@@ -209,7 +221,8 @@ public class JDBCDriver implements Driver
 
 				try
 				{
-					final Connection conn = createConnection(hostnameAndPort[0], portNum, db, arg1);
+					final XGConnection conn = createConnection(hostnameAndPort[0], portNum, db, arg1);
+					conn.startStandby();
 					return conn;
 				}
 				catch (final Exception e)
@@ -237,7 +250,7 @@ public class JDBCDriver implements Driver
 		throw SQLStates.MALFORMED_URL.clone();
 	}
 
-	private Connection createConnection(final String hostname, final int portNum, final String database, final Properties properties) throws SQLException
+	private XGConnection createConnection(final String hostname, final int portNum, final String database, final Properties properties) throws SQLException
 	{
 		final Socket sock = null;
 		final String user = properties.getProperty("user");
@@ -253,7 +266,7 @@ public class JDBCDriver implements Driver
 			LOGGER.log(Level.INFO, String.format("Received %d IP addresses for hostname %s", addrs.length, hostname));
 			boolean connected = false;
 			Throwable lastError = null;
-			for (final InetAddress addr : addrs)
+			for (final InetAddress addr : orderAddresses(addrs, portNum, properties))
 			{
 				try
 				{
@@ -311,6 +324,135 @@ public class JDBCDriver implements Driver
 		return conn;
 	}
 
+	/*
+	 * With endpointSelection=LEAST_LOADED, the addresses this JVM has connected to
+	 * the least lately come first
+	 */
+	private List<InetAddress> orderAddresses(final InetAddress[] addrs, final int portNum, final Properties properties)
+	{
+		final List<InetAddress> retval = Arrays.asList(addrs);
+		if (!XGConnection.EndpointSelection.LEAST_LOADED.name().equalsIgnoreCase(properties.getProperty("endpointSelection")))
+		{
+			return retval;
+		}
+
+		return EndpointStats.leastLoadedFirst(retval, addr -> Collections.singletonList(addr.getHostAddress() + ":" + portNum));
+	}
+
+	/*
+	 * Like trying createConnection() on each host in turn, but every address of
+	 * every host is a candidate and they are connected to at once, staggered by
+	 * raceMillis. The first to finish the handshake is kept and the rest are
+	 * closed.
+	 */
+	private XGConnection raceConnections(final String[] hostList, final String database, final Properties properties, final long raceMillis) throws SQLException
+	{
+		final String user = properties.getProperty("user");
+		final String pwd = properties.getProperty("password");
+		final String force = properties.getProperty("force");
+		final String tlsStr = properties.getProperty("tls", "OFF").toUpperCase();
+		final XGConnection.Tls tls = XGConnection.Tls.valueOf(tlsStr);
+
+		final ArrayList<ConnectRace.Attempt<XGConnection>> attempts = new ArrayList<>();
+		Throwable lastError = null;
+		try
+		{
+			for (final String host : hostList)
+			{
+				final String[] hostnameAndPort = host.split(":");
+				if (hostnameAndPort.length != 2)
+				{
+					LOGGER.log(Level.SEVERE, "Host list in URL is malformed");
+					throw SQLStates.MALFORMED_URL.clone();
+				}
+
+				int portNum = 0;
+				try
+				{
+					portNum = Integer.parseInt(hostnameAndPort[1]);
+				}
+				catch (final Exception e)
+				{
+					LOGGER.log(Level.SEVERE, "Port number in URL was not an integer");
+					throw SQLStates.MALFORMED_URL.clone();
+				}
+
+				final InetAddress[] addrs;
+				try
+				{
+					addrs = InetAddress.getAllByName(hostnameAndPort[0]);
+				}
+				catch (final IOException e)
+				{
+					lastError = e;
+					LOGGER.log(Level.WARNING, String.format("Failed resolving %s with exception %s with message %s", hostnameAndPort[0], e.toString(), e.getMessage()));
+					continue;
+				}
+
+				LOGGER.log(Level.INFO, String.format("Received %d IP addresses for hostname %s", addrs.length, hostnameAndPort[0]));
+				for (final InetAddress addr : orderAddresses(addrs, portNum, properties))
+				{
+					final String url = "jdbc:ocient://" + hostnameAndPort[0] + ":" + Integer.toString(portNum) + "/" + database;
+					final XGConnection conn = new XGConnection(user, pwd, addr.getHostAddress(), portNum, url, database, version, force, tls, properties);
+
+					// If we've already seen this connection, don't do the connect
+					synchronized (seenConnections)
+					{
+						if (seenConnections.containsKey(conn))
+						{
+							conn.setServerVersion(seenConnections.get(conn).getServerVersion());
+							return conn;
+						}
+					}
+
+					attempts.add(() ->
+					{
+						LOGGER.log(Level.INFO, String.format("About to attempt connection to %s", addr.toString()));
+						conn.connect();
+						conn.setSchema = conn.getSchema();
+						conn.defaultSchema = conn.setSchema;
+						return conn;
+					});
+				}
+			}
+
+			if (attempts.isEmpty())
+			{
+				throw lastError;
+			}
+
+			// Losers are only closed at the socket, since closing the connection would
+			// also drop statements cached for any equal connection
+			final XGConnection conn = ConnectRace.first(attempts, raceMillis, XGConnection::closeSession);
+			LOGGER.log(Level.INFO, "Successfully connected");
+			synchronized (seenConnections)
+			{
+				seenConnections.put(conn, conn);
+			}
+
+			return conn;
+		}
+		catch (final SQLException e)
+		{
+			if (SQLStates.MALFORMED_URL.equals(e))
+			{
+				throw e;
+			}
+
+			lastError = e;
+		}
+		catch (final Throwable e)
+		{
+			lastError = e;
+		}
+
+		final SQLException g = SQLStates.FAILED_CONNECTION.clone();
+		final Exception connInfo = new Exception("Connection failed connecting to " + String.join(",", hostList) + " - " + lastError.getMessage());
+		g.initCause(connInfo);
+		connInfo.initCause(lastError);
+		throw g;
+	}
+
 	public String getDriverVersion()
 	{
 		return version;
@@ -338,7 +480,7 @@ public class JDBCDriver implements Driver
 	@Override
 	public DriverPropertyInfo[] getPropertyInfo(final String arg0, final Properties arg1) throws SQLException
 	{
-		final DriverPropertyInfo[] retval = new DriverPropertyInfo[14];
+		final DriverPropertyInfo[] retval = new DriverPropertyInfo[40];
 		final DriverPropertyInfo user = new DriverPropertyInfo("user", null);
 		user.description = "The userid to use for the connection";
 		user.required = true;
@@ -418,6 +560,152 @@ public class JDBCDriver implements Driver
 		tls.choices[2] = "ON";
 		retval[13] = tls;
 
+		final DriverPropertyInfo decodeMode = new DriverPropertyInfo("decodeMode", "EAGER");
+		decodeMode.description = "When fetched rows are decoded. LAZY keeps them in wire format and decodes values as they are read. COLUMNAR also copies fixed width columns into primitive arrays";
+		decodeMode.required = false;
+		decodeMode.choices = new String[3];
+		decodeMode.choices[0] = "EAGER";
+		decodeMode.choices[1] = "LAZY";
+		decodeMode.choices[2] = "COLUMNAR";
+		retval[14] = decodeMode;
+
+		final DriverPropertyInfo maxBufferedBytes = new DriverPropertyInfo("maxBufferedBytes", "0");
+		maxBufferedBytes.description = "Maximum bytes of fetched data buffered by the result sets of a connection before fetching waits. 0 = no limit";
+		maxBufferedBytes.required = false;
+		retval[15] = maxBufferedBytes;
+
+		final DriverPropertyInfo maxJvmBufferedBytes = new DriverPropertyInfo("maxJvmBufferedBytes", "0");
+		maxJvmBufferedBytes.description = "Maximum bytes of fetched data buffered by all result sets in the JVM before fetching waits. 0 = no limit";
+		maxJvmBufferedBytes.required = false;
+		retval[16] = maxJvmBufferedBytes;
+
+		final DriverPropertyInfo adaptiveFetchSize = new DriverPropertyInfo("adaptiveFetchSize", "false");
+		adaptiveFetchSize.description = "Resize each fetch request based on the observed row width and how fast rows are read, starting from the fetch size. Sizes stay between 1000 rows, or the fetch size if it is smaller, and 1000000 rows";
+		adaptiveFetchSize.required = false;
+		adaptiveFetchSize.choices = new String[2];
+		adaptiveFetchSize.choices[0] = "true";
+		adaptiveFetchSize.choices[1] = "false";
+		retval[17] = adaptiveFetchSize;
+
+		final DriverPropertyInfo fetchTargetBytes = new DriverPropertyInfo("fetchTargetBytes", "8388608");
+		fetchTargetBytes.description = "Target size in bytes of each fetch response when adaptiveFetchSize is on. 0 = no target";
+		fetchTargetBytes.required = false;
+		retval[18] = fetchTargetBytes;
+
+		final DriverPropertyInfo fetchTargetMillis = new DriverPropertyInfo("fetchTargetMillis", "200");
+		fetchTargetMillis.description = "Target time in milliseconds for the application to read each fetch response when adaptiveFetchSize is on. 0 = no target";
+		fetchTargetMillis.required = false;
+		retval[19] = fetchTargetMillis;
+
+		final DriverPropertyInfo fetchPipelineDepth = new DriverPropertyInfo("fetchPipelineDepth", "1");
+		fetchPipelineDepth.description = "Number of fetch requests kept outstanding per result set connection. Above 1, responses are also decoded on a separate thread";
+		fetchPipelineDepth.required = false;
+		retval[20] = fetchPipelineDepth;
+
+		final DriverPropertyInfo decodeThreads = new DriverPropertyInfo("decodeThreads", "0");
+		decodeThreads.description = "Size of the shared thread pool that decodes fetched data for multi-threaded fetches, set by the first connection that uses it. 0 = decode on the fetch threads";
+		decodeThreads.required = false;
+		retval[21] = decodeThreads;
+
+		final DriverPropertyInfo transport = new DriverPropertyInfo("transport", "SOCKET");
+		transport.description = "SOCKET or CHANNEL. CHANNEL reads unencrypted connections through a SocketChannel with large scatter reads";
+		transport.required = false;
+		transport.choices = new String[2];
+		transport.choices[0] = "SOCKET";
+		transport.choices[1] = "CHANNEL";
+		retval[22] = transport;
+
+		final DriverPropertyInfo sessionPoolSize = new DriverPropertyInfo("sessionPoolSize", "0");
+		sessionPoolSize.description = "Idle authenticated sessions kept per endpoint, user, database, TLS mode and session settings for statements to reuse. 0 = no pooling";
+		sessionPoolSize.required = false;
+		retval[23] = sessionPoolSize;
+
+		final DriverPropertyInfo sessionPoolIdleMillis = new DriverPropertyInfo("sessionPoolIdleMillis", "60000");
+		sessionPoolIdleMillis.description = "How long a pooled session can sit idle before it is closed. 0 = no limit";
+		sessionPoolIdleMillis.required = false;
+		retval[24] = sessionPoolIdleMillis;
+
+		final DriverPropertyInfo sessionPoolTestMillis = new DriverPropertyInfo("sessionPoolTestMillis", "5000");
+		sessionPoolTestMillis.description = "Pooled sessions idle for at least this long are tested with a round trip before reuse. -1 = never test";
+		sessionPoolTestMillis.required = false;
+		retval[25] = sessionPoolTestMillis;
+
+		final DriverPropertyInfo releaseIdleSessions = new DriverPropertyInfo("releaseIdleSessions", "false");
+		releaseIdleSessions.description = "With sessionPoolSize > 0, statements give their session back to the pool between executions and take one again for the next request";
+		releaseIdleSessions.required = false;
+		releaseIdleSessions.choices = new String[2];
+		releaseIdleSessions.choices[0] = "true";
+		releaseIdleSessions.choices[1] = "false";
+		retval[26] = releaseIdleSessions;
+
+		final DriverPropertyInfo validationCacheMillis = new DriverPropertyInfo("validationCacheMillis", "0");
+		validationCacheMillis.description = "How long isValid() trusts a successful connection test before testing again, in milliseconds. 0 = test every time";
+		validationCacheMillis.required = false;
+		retval[27] = validationCacheMillis;
+
+		final DriverPropertyInfo handshakeKeySpares = new DriverPropertyInfo("handshakeKeySpares", "0");
+		handshakeKeySpares.description = "Client Diffie-Hellman key pairs generated ahead of time per server group, so handshakes skip key generation. Each pair is used once. 0 = generate during the handshake";
+		handshakeKeySpares.required = false;
+		retval[28] = handshakeKeySpares;
+
+		final DriverPropertyInfo reconnectPolicy = new DriverPropertyInfo("reconnectPolicy", null);
+		reconnectPolicy.description = "Class implementing com.ocient.jdbc.ReconnectPolicy that decides how reconnects are retried. Replaces the reconnectBackoffMillis, reconnectMaxBackoffMillis and reconnectDeadlineMillis properties";
+		reconnectPolicy.required = false;
+		retval[29] = reconnectPolicy;
+
+		final DriverPropertyInfo reconnectBackoffMillis = new DriverPropertyInfo("reconnectBackoffMillis", "100");
+		reconnectBackoffMillis.description = "Wait after the first failed reconnect attempt, doubling after each further failure, with random jitter";
+		reconnectBackoffMillis.required = false;
+		retval[30] = reconnectBackoffMillis;
+
+		final DriverPropertyInfo reconnectMaxBackoffMillis = new DriverPropertyInfo("reconnectMaxBackoffMillis", "2000");
+		reconnectMaxBackoffMillis.description = "Longest wait between reconnect attempts";
+		reconnectMaxBackoffMillis.required = false;
+		retval[31] = reconnectMaxBackoffMillis;
+
+		final DriverPropertyInfo reconnectDeadlineMillis = new DriverPropertyInfo("reconnectDeadlineMillis", "0");
+		reconnectDeadlineMillis.description = "No reconnect attempt starts later than this after the first one. 0 = a single attempt";
+		reconnectDeadlineMillis.required = false;
+		retval[32] = reconnectDeadlineMillis;
+
+		final DriverPropertyInfo raceConnectMillis = new DriverPropertyInfo("raceConnectMillis", "0");
+		raceConnectMillis.description = "Connect to every address of every host, and to every SQL node interface on reconnect, at once, starting the next attempt after this many milliseconds or when one fails, and keep the first to finish. 0 = one at a time";
+		raceConnectMillis.required = false;
+		retval[33] = raceConnectMillis;
+
+		final DriverPropertyInfo endpointSelection = new DriverPropertyInfo("endpointSelection", "LISTED");
+		endpointSelection.description = "Order SQL nodes are tried in when connecting and reconnecting. LEAST_LOADED tries the ones this JVM opened the fewest sessions to lately, with the fastest connects and no recent failures, first";
+		endpointSelection.required = false;
+		endpointSelection.choices = new String[2];
+		endpointSelection.choices[0] = "LISTED";
+		endpointSelection.choices[1] = "LEAST_LOADED";
+		retval[34] = endpointSelection;
+
+		final DriverPropertyInfo standbySessions = new DriverPropertyInfo("standbySessions", "0");
+		standbySessions.description = "Authenticated sessions kept open in the background for new statements to start on, per set of connection settings. Turns on session pooling with at least this many sessions";
+		standbySessions.required = false;
+		retval[35] = standbySessions;
+
+		final DriverPropertyInfo standbyWaitMillis = new DriverPropertyInfo("standbyWaitMillis", "0");
+		standbyWaitMillis.description = "How long connecting waits for the standby sessions to open. 0 = don't wait";
+		standbyWaitMillis.required = false;
+		retval[36] = standbyWaitMillis;
+
+		final DriverPropertyInfo batchRows = new DriverPropertyInfo("batchRows", "1000");
+		batchRows.description = "Most statements executeBatch() sends before reading their update counts";
+		batchRows.required = false;
+		retval[37] = batchRows;
+
+		final DriverPropertyInfo batchBytes = new DriverPropertyInfo("batchBytes", "4194304");
+		batchBytes.description = "Most request bytes executeBatch() sends before reading their update counts";
+		batchBytes.required = false;
+		retval[38] = batchBytes;
+
+		final DriverPropertyInfo asyncThreads = new DriverPropertyInfo("asyncThreads", "16");
+		asyncThreads.description = "Threads the driver runs executeQueryAsync() and executeUpdateAsync() calls on, shared by all connections. The pool grows to the largest value any connection asks for";
+		asyncThreads.required = false;
+		retval[39] = asyncThreads;
+
 		return retval;
 	}
 
@@ -0,0 +1,111 @@
+package com.ocient.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A batch where every row was decoded up front into an ArrayList<Object>
+ */
+class ObjectRowBatch extends RowBatch
+{
+	private final ArrayList<Object> rows;
+	private final long bytes;
+
+	ObjectRowBatch(final ArrayList<Object> rows)
+	{
+		this(rows, 0);
+	}
+
+	ObjectRowBatch(final ArrayList<Object> rows, final long bytes)
+	{
+		this.rows = rows;
+		this.bytes = bytes;
+	}
+
+	@Override
+	long bytes()
+	{
+		return bytes;
+	}
+
+	private Object col(final int index, final int col)
+	{
+		return ((List<?>) rows.get(index)).get(col);
+	}
+
+	@Override
+	SQLException error()
+	{
+		return !rows.isEmpty() && rows.get(0) instanceof SQLException ? (SQLException) rows.get(0) : null;
+	}
+
+	@Override
+	Object get(final int index)
+	{
+		return rows.get(index);
+	}
+
+	@Override
+	double getDouble(final int index, final int col)
+	{
+		return ((Number) col(index, col)).doubleValue();
+	}
+
+	@Override
+	int getInt(final int index, final int col)
+	{
+		return ((Number) col(index, col)).intValue();
+	}
+
+	@Override
+	long getLong(final int index, final int col)
+	{
+		return ((Number) col(index, col)).longValue();
+	}
+
+	@Override
+	Object getObject(final int index, final int col)
+	{
+		return col(index, col);
+	}
+
+	@Override
+	String getString(final int index, final int col)
+	{
+		return col(index, col).toString();
+	}
+
+	@Override
+	boolean isDataEnd(final int index)
+	{
+		return rows.get(index) instanceof DataEndMarker;
+	}
+
+	@Override
+	boolean isNull(final int index, final int col)
+	{
+		return col(index, col) == null;
+	}
+
+	@Override
+	boolean isNumber(final int index, final int col)
+	{
+		final Object value = col(index, col);
+		return value instanceof Byte || value instanceof Integer || value instanceof Short || value instanceof Long || value instanceof Float || value instanceof Double
+			|| value instanceof BigDecimal;
+	}
+
+	@Override
+	int numColumns(final int index)
+	{
+		return ((List<?>) rows.get(index)).size();
+	}
+
+	@Override
+	int size()
+	{
+		return rows.size();
+	}
+}
@@ -0,0 +1,47 @@
+package com.ocient.jdbc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Decides how XGConnection.reconnect() retries. The first attempt always
+ * starts right away. After each failed attempt the policy is asked how long
+ * to wait before the next one, and a negative answer gives up with the last
+ * failure.
+ *
+ * The policy is set with the reconnectPolicy connection property, naming a
+ * class with a public no argument constructor, or with
+ * XGConnection.setReconnectPolicy(). Connections copied for statements share
+ * their parent's policy, so it must be thread safe.
+ */
+public interface ReconnectPolicy
+{
+	/*
+	 * Exponential backoff starting at initialMillis and doubling up to maxMillis,
+	 * with each wait picked at random from its upper half so clients that lost
+	 * the same server don't all come back at once. No attempt starts more than
+	 * deadlineMillis after the first one, and a deadline of 0 means only one
+	 * attempt.
+	 */
+	static ReconnectPolicy backoff(final long initialMillis, final long maxMillis, final long deadlineMillis)
+	{
+		return (failures, elapsedMillis) ->
+		{
+			final long remaining = deadlineMillis - elapsedMillis;
+			if (remaining <= 0)
+			{
+				return -1;
+			}
+
+			final long base = Math.min(maxMillis, initialMillis << Math.min(failures - 1, 30));
+			final long delay = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+			return Math.min(delay, remaining);
+		};
+	}
+
+	/*
+	 * Returns how many milliseconds to wait before the next attempt, or a negative
+	 * number to give up. failures is the number of attempts that have failed so
+	 * far and elapsedMillis the time since the first one started.
+	 */
+	long delayMillis(int failures, long elapsedMillis);
+}
@@ -0,0 +1,72 @@
+package com.ocient.jdbc;
+
+import java.sql.SQLException;
+
+/*
+ * A batch of rows handed from the fetch threads to the result set. Rows are
+ * addressed by their index within the batch and the last entry may be a
+ * DataEndMarker. Columns are 0 based.
+ */
+abstract class RowBatch
+{
+	/*
+	 * Size of the batch as it came off the wire, used to bound how much fetched
+	 * data is buffered
+	 */
+	abstract long bytes();
+
+	/*
+	 * Returns the failure the batch carries instead of rows, or null
+	 */
+	SQLException error()
+	{
+		return null;
+	}
+
+	/*
+	 * Returns the entry at index, which is a DataEndMarker, an ArrayList<Object>
+	 * holding the row, or a SQLException if the fetch failed
+	 */
+	abstract Object get(int index) throws SQLException;
+
+	abstract double getDouble(int index, int col) throws SQLException;
+
+	abstract int getInt(int index, int col) throws SQLException;
+
+	abstract long getLong(int index, int col) throws SQLException;
+
+	/*
+	 * Returns a column as the object the getters convert from, without
+	 * materializing the rest of the row
+	 */
+	abstract Object getObject(int index, int col) throws SQLException;
+
+	/*
+	 * Only valid for a column that is not null
+	 */
+	abstract String getString(int index, int col) throws SQLException;
+
+	abstract boolean isDataEnd(int index);
+
+	abstract boolean isNull(int index, int col) throws SQLException;
+
+	/*
+	 * True if the column can be read with getInt(), getLong() and getDouble()
+	 */
+	abstract boolean isNumber(int index, int col) throws SQLException;
+
+	abstract int numColumns(int index) throws SQLException;
+
+	/*
+	 * Number of entries, including a trailing DataEndMarker
+	 */
+	abstract int size();
+
+	/*
+	 * Returns the primitive copy of a column, if the batch has one
+	 */
+	ColumnVector vector(final int col)
+	{
+		return null;
+	}
+}
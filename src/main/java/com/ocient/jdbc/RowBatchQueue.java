@@ -0,0 +1,282 @@
+package com.ocient.jdbc;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Hands fetched batches from the fetch threads to the result set. The slots are
+ * a fixed ring so putting and taking never allocates, and the queue is bounded
+ * by the wire size of the batches it holds as well as by the number of slots.
+ * A batch bigger than the whole byte limit is still let in once the queue is
+ * empty, so a single wide batch can't wedge the fetch threads.
+ *
+ * Lazy batches the consumer is done with are handed back through take() and
+ * kept on a free list, so the fetch threads can reuse their index arrays.
+ *
+ * Batches are also charged against the connection and JVM wide budgets from
+ * the time they are put until the consumer moves on to the next batch or the
+ * queue is closed. put() waits for budget only while this queue still has
+ * batches for the consumer, so one result set can't starve another one that
+ * shares the budget into a deadlock.
+ */
+final class RowBatchQueue
+{
+	private static final int MAX_FREE = 4;
+
+	private final RowBatch[] slots;
+	private final long maxBytes;
+	private final BufferBudget[] budgets;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private int head = 0;
+	private int tail = 0;
+	private int count = 0;
+	private volatile int queued = 0;
+	private long bytes = 0;
+	// The batch the consumer is reading, still charged against the budgets
+	private RowBatch current = null;
+	private boolean closed = false;
+
+	private final BlobRowBatch[] free = new BlobRowBatch[MAX_FREE];
+	private int numFree = 0;
+
+	RowBatchQueue(final int capacity, final long maxBytes, final BufferBudget... budgets)
+	{
+		slots = new RowBatch[capacity];
+		this.maxBytes = maxBytes;
+		this.budgets = budgets;
+	}
+
+	/*
+	 * Returns the number of wire bytes held by batches waiting in the queue
+	 */
+	long bufferedBytes()
+	{
+		lock.lock();
+		try
+		{
+			return bytes;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Releases everything that is still buffered. Batches put after this are
+	 * dropped.
+	 */
+	void close()
+	{
+		final ArrayList<RowBatch> dropped = new ArrayList<>();
+		lock.lock();
+		try
+		{
+			closed = true;
+			if (current != null)
+			{
+				dropped.add(current);
+				current = null;
+			}
+
+			while (count > 0)
+			{
+				dropped.add(slots[head]);
+				slots[head] = null;
+				head = (head + 1) % slots.length;
+				count--;
+			}
+
+			queued = 0;
+			bytes = 0;
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		for (final RowBatch batch : dropped)
+		{
+			release(batch.bytes());
+		}
+	}
+
+	private boolean hasRoom(final long batchBytes)
+	{
+		return count < slots.length && (count == 0 || bytes + batchBytes <= maxBytes);
+	}
+
+	private void insert(final RowBatch batch)
+	{
+		slots[tail] = batch;
+		tail = (tail + 1) % slots.length;
+		count++;
+		queued = count;
+		bytes += batch.bytes();
+		notEmpty.signal();
+	}
+
+	/*
+	 * Returns an empty lazy batch, reusing one the consumer is done with if there
+	 * is one
+	 */
+	BlobRowBatch newBlobBatch(final XGResultSet owner)
+	{
+		lock.lock();
+		try
+		{
+			if (numFree > 0)
+			{
+				numFree--;
+				final BlobRowBatch retval = free[numFree];
+				free[numFree] = null;
+				return retval;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		return new BlobRowBatch(owner);
+	}
+
+	/*
+	 * Adds a batch without waiting, ignoring the byte limit. Returns false if
+	 * all the slots are full
+	 */
+	boolean offer(final RowBatch batch)
+	{
+		lock.lock();
+		try
+		{
+			if (count == slots.length)
+			{
+				return false;
+			}
+
+			insert(batch);
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	void put(final RowBatch batch) throws InterruptedException
+	{
+		final long batchBytes = batch.bytes();
+		int charged = 0;
+		boolean inserted = false;
+		try
+		{
+			for (final BufferBudget budget : budgets)
+			{
+				budget.acquire(batchBytes, () -> queued > 0);
+				charged++;
+			}
+
+			lock.lockInterruptibly();
+			try
+			{
+				while (!closed && !hasRoom(batchBytes))
+				{
+					notFull.await();
+				}
+
+				if (!closed)
+				{
+					insert(batch);
+					inserted = true;
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+		finally
+		{
+			if (!inserted)
+			{
+				for (int i = 0; i < charged; i++)
+				{
+					budgets[i].release(batchBytes);
+				}
+			}
+		}
+	}
+
+	private void release(final long batchBytes)
+	{
+		for (final BufferBudget budget : budgets)
+		{
+			budget.release(batchBytes);
+		}
+	}
+
+	/*
+	 * Takes the next batch, waiting for one if needed. previous is the batch the
+	 * consumer is done with, or null.
+	 */
+	RowBatch take(final RowBatch previous) throws InterruptedException
+	{
+		final RowBatch retval;
+		// What the batch the consumer is done with was charged, read before it can
+		// be recycled. Once it is on the free list a fetch thread can clear and
+		// refill it.
+		final long doneBytes;
+		lock.lockInterruptibly();
+		try
+		{
+			while (count == 0)
+			{
+				notEmpty.await();
+			}
+
+			doneBytes = current != null ? current.bytes() : -1;
+
+			// Only recycle once there is something to replace it with, the consumer
+			// keeps using previous if the wait gets interrupted
+			if (previous instanceof BlobRowBatch && numFree < MAX_FREE)
+			{
+				((BlobRowBatch) previous).clear();
+				free[numFree] = (BlobRowBatch) previous;
+				numFree++;
+			}
+
+			retval = slots[head];
+			slots[head] = null;
+			head = (head + 1) % slots.length;
+			count--;
+			queued = count;
+			bytes -= retval.bytes();
+			current = retval;
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		// Outside of the lock, budget waiters look at queued
+		if (doneBytes >= 0)
+		{
+			release(doneBytes);
+		}
+		else if (queued == 0)
+		{
+			for (final BufferBudget budget : budgets)
+			{
+				budget.wakeUp();
+			}
+		}
+
+		return retval;
+	}
+}
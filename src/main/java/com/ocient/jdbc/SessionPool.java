@@ -0,0 +1,195 @@
+package com.ocient.jdbc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * JVM wide pool of authenticated sessions for the connections that statements
+ * copy from their parent connection. A session is pooled under the key of the
+ * connection that leased or opened it, which holds everything that was replayed
+ * to the server when it was set up (endpoint, user, database, TLS mode, schema
+ * and parameters), so any connection with the same key can take it over without
+ * another handshake.
+ *
+ * Sessions are handed out most recently used first so the ones past their idle
+ * time age out, and the driver's scheduler closes those while the pool is not empty.
+ */
+final class SessionPool
+{
+	private static final class IdleSession
+	{
+		private final XGConnection conn;
+		private final long idleSince;
+		private final long expires;
+
+		private IdleSession(final XGConnection conn, final long idleMillis)
+		{
+			this.conn = conn;
+			idleSince = System.currentTimeMillis();
+			expires = idleMillis > 0 ? idleSince + idleMillis : Long.MAX_VALUE;
+		}
+	}
+
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
+
+	private static final long SWEEP_MILLIS = 5000;
+
+	private static final HashMap<List<Object>, ArrayDeque<IdleSession>> idle = new HashMap<>();
+	private static ScheduledFuture<?> sweeper = null;
+	private static int numIdle = 0;
+
+	private static void close(final List<XGConnection> sessions)
+	{
+		for (final XGConnection conn : sessions)
+		{
+			conn.closeSession();
+		}
+	}
+
+	/*
+	 * Returns the number of sessions sitting in the pool
+	 */
+	static synchronized int idleCount()
+	{
+		return numIdle;
+	}
+
+	/*
+	 * Returns the number of sessions sitting in the pool for key
+	 */
+	static synchronized int idleCount(final List<Object> key)
+	{
+		final ArrayDeque<IdleSession> sessions = idle.get(key);
+		return sessions == null ? 0 : sessions.size();
+	}
+
+	/*
+	 * Takes an idle session for key, or returns null if there isn't a working
+	 * one. Sessions idle for longer than testAfterMillis are tested with a round
+	 * trip before they are handed out.
+	 */
+	static XGConnection lease(final List<Object> key, final long testAfterMillis)
+	{
+		while (true)
+		{
+			final IdleSession session;
+			synchronized (SessionPool.class)
+			{
+				final ArrayDeque<IdleSession> sessions = idle.get(key);
+				if (sessions == null)
+				{
+					return null;
+				}
+
+				session = sessions.pollFirst();
+				numIdle--;
+				if (sessions.isEmpty())
+				{
+					idle.remove(key);
+				}
+			}
+
+			final long now = System.currentTimeMillis();
+			if (now >= session.expires)
+			{
+				session.conn.closeSession();
+				continue;
+			}
+
+			if (testAfterMillis >= 0 && now - session.idleSince >= testAfterMillis && !session.conn.testSession())
+			{
+				LOGGER.log(Level.INFO, "Dropping pooled session that failed its health check");
+				session.conn.closeSession();
+				continue;
+			}
+
+			return session.conn;
+		}
+	}
+
+	/*
+	 * Puts a session back in the pool, closing the least recently used one for
+	 * the key if that makes more than maxIdle
+	 */
+	static void release(final XGConnection conn, final List<Object> key, final int maxIdle, final long idleMillis)
+	{
+		final ArrayList<XGConnection> evicted = new ArrayList<>();
+		synchronized (SessionPool.class)
+		{
+			ArrayDeque<IdleSession> sessions = idle.get(key);
+			if (sessions == null)
+			{
+				sessions = new ArrayDeque<>();
+				idle.put(key, sessions);
+			}
+
+			sessions.addFirst(new IdleSession(conn, idleMillis));
+			numIdle++;
+			while (sessions.size() > maxIdle)
+			{
+				evicted.add(sessions.pollLast().conn);
+				numIdle--;
+			}
+
+			if (sessions.isEmpty())
+			{
+				idle.remove(key);
+			}
+
+			if (sweeper == null && numIdle > 0)
+			{
+				sweeper = DriverScheduler.scheduleAtFixedRate(SessionPool::sweep, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		close(evicted);
+	}
+
+	/*
+	 * Closes the sessions that have been idle too long, and stops sweeping once
+	 * the pool is empty
+	 */
+	private static void sweep()
+	{
+		final ArrayList<XGConnection> expired = new ArrayList<>();
+		synchronized (SessionPool.class)
+		{
+			final long now = System.currentTimeMillis();
+			final Iterator<Map.Entry<List<Object>, ArrayDeque<IdleSession>>> it = idle.entrySet().iterator();
+			while (it.hasNext())
+			{
+				final ArrayDeque<IdleSession> sessions = it.next().getValue();
+				while (!sessions.isEmpty() && now >= sessions.peekLast().expires)
+				{
+					expired.add(sessions.pollLast().conn);
+					numIdle--;
+				}
+
+				if (sessions.isEmpty())
+				{
+					it.remove();
+				}
+			}
+
+			if (numIdle == 0 && sweeper != null)
+			{
+				sweeper.cancel(false);
+				sweeper = null;
+			}
+		}
+
+		close(expired);
+	}
+
+	private SessionPool()
+	{
+	}
+}
@@ -0,0 +1,210 @@
+package com.ocient.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * SQL split at its parameter markers, so binding parameters only has to
+ * append literals between fragments that were found once. A ? inside single
+ * or double quotes is not a marker, and '' or "" inside or outside quotes is
+ * an escaped quote.
+ *
+ * Dates and times are written in UTC on the proleptic Gregorian calendar.
+ */
+final class SqlTemplate
+{
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final DateTimeFormatter DATE = new DateTimeFormatterBuilder().appendValue(ChronoField.YEAR_OF_ERA, 4, 19, SignStyle.NORMAL).appendPattern("-MM-dd").toFormatter()
+		.withZone(ZoneOffset.UTC);
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
+	private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder().append(DATE).appendLiteral(' ').append(TIME).toFormatter().withZone(ZoneOffset.UTC);
+
+	/*
+	 * Appends parm as a SQL literal
+	 */
+	static void appendLiteral(final StringBuilder out, final Object parm) throws SQLException
+	{
+		if (parm == null)
+		{
+			out.append("NULL");
+		}
+		else if (parm instanceof String)
+		{
+			final String s = (String) parm;
+			out.append('\'');
+			for (int i = 0; i < s.length(); i++)
+			{
+				final char c = s.charAt(i);
+				if (c == '\'')
+				{
+					out.append('\'');
+				}
+
+				out.append(c);
+			}
+
+			out.append('\'');
+		}
+		else if (parm instanceof Timestamp)
+		{
+			out.append("TIMESTAMP('");
+			TIMESTAMP.formatTo(Instant.ofEpochMilli(((Timestamp) parm).getTime()), out);
+			out.append("')");
+		}
+		else if (parm instanceof Boolean)
+		{
+			out.append("BOOLEAN('").append(parm).append("')");
+		}
+		else if (parm instanceof byte[])
+		{
+			out.append("BINARY('0x");
+			for (final byte b : (byte[]) parm)
+			{
+				out.append(HEX[(b >> 4) & 0x0f]).append(HEX[b & 0x0f]);
+			}
+
+			out.append("')");
+		}
+		else if (parm instanceof Date)
+		{
+			out.append("DATE('");
+			DATE.formatTo(Instant.ofEpochMilli(((Date) parm).getTime()), out);
+			out.append("')");
+		}
+		else if (parm instanceof Time)
+		{
+			out.append("TIME('");
+			TIME.formatTo(Instant.ofEpochMilli(((Time) parm).getTime()), out);
+			out.append("')");
+		}
+		else if (parm instanceof Byte)
+		{
+			out.append("BYTE(").append(parm).append(")");
+		}
+		else if (parm instanceof Short)
+		{
+			out.append("SMALLINT(").append(parm).append(")");
+		}
+		else if (parm instanceof Integer)
+		{
+			out.append("INT(").append(parm).append(")");
+		}
+		else if (parm instanceof Float)
+		{
+			out.append("FLOAT(").append(parm).append(")");
+		}
+		else if (parm instanceof Long || parm instanceof Double)
+		{
+			out.append(parm);
+		}
+		else if (parm instanceof BigDecimal)
+		{
+			final BigDecimal d = (BigDecimal) parm;
+			out.append("DECIMAL(").append(d).append(", ").append(d.precision()).append(", ").append(d.scale()).append(")");
+		}
+		else
+		{
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+
+	/*
+	 * Finds the parameter markers in sql
+	 */
+	static SqlTemplate parse(final String sql)
+	{
+		final ArrayList<String> fragments = new ArrayList<>();
+		int from = 0;
+		int i = 0;
+		// 0 outside quotes, otherwise the quote we are inside
+		char quote = 0;
+		final int size = sql.length();
+		while (i < size)
+		{
+			final char c = sql.charAt(i);
+			if (c != '\'' && c != '"' || quote != 0 && c != quote)
+			{
+				if (quote == 0 && c == '?')
+				{
+					fragments.add(sql.substring(from, i));
+					from = i + 1;
+				}
+			}
+			else if (i + 1 == size || sql.charAt(i + 1) != c)
+			{
+				quote = quote == 0 ? c : 0;
+			}
+			else
+			{
+				// Doubled quote
+				i++;
+			}
+
+			i++;
+		}
+
+		fragments.add(sql.substring(from));
+		return new SqlTemplate(sql, fragments);
+	}
+
+	private final String sql;
+	private final String[] fragments;
+	private final int length;
+
+	private SqlTemplate(final String sql, final List<String> fragments)
+	{
+		this.sql = sql;
+		this.fragments = fragments.toArray(new String[0]);
+		int length = 0;
+		for (final String fragment : fragments)
+		{
+			length += fragment.length();
+		}
+
+		this.length = length;
+	}
+
+	/*
+	 * Returns the SQL with the markers replaced by parms in order. Parameters past
+	 * the last marker are ignored.
+	 */
+	String bind(final List<Object> parms) throws SQLException
+	{
+		final int markers = fragments.length - 1;
+		if (parms.size() < markers)
+		{
+			throw SQLStates.INVALID_PARAMETER_MARKER.clone();
+		}
+
+		final StringBuilder out = new StringBuilder(length + 16 * markers);
+		out.append(fragments[0]);
+		for (int i = 0; i < markers; i++)
+		{
+			appendLiteral(out, parms.get(i));
+			out.append(fragments[i + 1]);
+		}
+
+		return out.toString();
+	}
+
+	/*
+	 * Returns the SQL this was parsed from
+	 */
+	String getSql()
+	{
+		return sql;
+	}
+}
@@ -0,0 +1,169 @@
+package com.ocient.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Closed poolable statements waiting to be handed out again by the connection
+ * that created them. Each connection gets a few lock free stacks, so threads
+ * creating and returning statements on the same connection mostly don't touch
+ * the same memory, and the number of statements kept per connection is
+ * bounded. evict() drops a connection's statements when it is closed.
+ */
+final class StatementCache<T extends XGStatement>
+{
+	private static final class Node<T>
+	{
+		private final T stmt;
+		private Node<T> next;
+
+		private Node(final T stmt)
+		{
+			this.stmt = stmt;
+		}
+	}
+
+	private static final class Stacks<T>
+	{
+		private final AtomicReferenceArray<Node<T>> heads = new AtomicReferenceArray<>(STRIPES);
+		private final AtomicInteger size = new AtomicInteger();
+		private volatile boolean evicted = false;
+
+		private T pop(final int start)
+		{
+			for (int i = 0; i < STRIPES; i++)
+			{
+				final int stripe = (start + i) & (STRIPES - 1);
+				while (true)
+				{
+					final Node<T> head = heads.get(stripe);
+					if (head == null)
+					{
+						break;
+					}
+
+					if (heads.compareAndSet(stripe, head, head.next))
+					{
+						size.decrementAndGet();
+						return head.stmt;
+					}
+				}
+			}
+
+			return null;
+		}
+
+		private void push(final int stripe, final T stmt)
+		{
+			final Node<T> node = new Node<>(stmt);
+			do
+			{
+				node.next = heads.get(stripe);
+			}
+			while (!heads.compareAndSet(stripe, node.next, node));
+		}
+	}
+
+	// Must be a power of 2
+	private static final int STRIPES = 4;
+
+	private static boolean isClosed(final XGConnection conn)
+	{
+		try
+		{
+			return conn.isClosed();
+		}
+		catch (final SQLException e)
+		{
+			return true;
+		}
+	}
+
+	private static int stripe()
+	{
+		return ThreadLocalRandom.current().nextInt() & (STRIPES - 1);
+	}
+
+	private final int maxPerConnection;
+	private final ConcurrentHashMap<XGConnection, Stacks<T>> caches = new ConcurrentHashMap<>();
+
+	StatementCache(final int maxPerConnection)
+	{
+		this.maxPerConnection = maxPerConnection;
+	}
+
+	private void closeAll(final Stacks<T> stacks)
+	{
+		T stmt;
+		while ((stmt = stacks.pop(0)) != null)
+		{
+			try
+			{
+				stmt.conn.close();
+			}
+			catch (final SQLException e)
+			{
+			}
+		}
+	}
+
+	/*
+	 * Closes the statements cached for conn and stops caching for it
+	 */
+	void evict(final XGConnection conn)
+	{
+		final Stacks<T> stacks = caches.remove(conn);
+		if (stacks != null)
+		{
+			stacks.evicted = true;
+			closeAll(stacks);
+		}
+	}
+
+	/*
+	 * Caches a statement for conn. Returns false if it wasn't cached because conn
+	 * is closed or already has as many as it can keep.
+	 */
+	boolean offer(final XGConnection conn, final T stmt)
+	{
+		if (isClosed(conn))
+		{
+			return false;
+		}
+
+		final Stacks<T> stacks = caches.computeIfAbsent(conn, k -> new Stacks<>());
+		if (stacks.size.incrementAndGet() > maxPerConnection)
+		{
+			stacks.size.decrementAndGet();
+			return false;
+		}
+
+		stacks.push(stripe(), stmt);
+
+		// Lost a race with evict()
+		if (stacks.evicted || isClosed(conn))
+		{
+			evict(conn);
+			closeAll(stacks);
+		}
+
+		return true;
+	}
+
+	/*
+	 * Takes a cached statement for conn, or returns null if there isn't one
+	 */
+	T poll(final XGConnection conn)
+	{
+		final Stacks<T> stacks = caches.get(conn);
+		if (stacks == null)
+		{
+			return null;
+		}
+
+		return stacks.pop(stripe());
+	}
+}
@@ -0,0 +1,18 @@
+package com.ocient.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * The async calls of XGAsyncStatement for a prepared statement's own SQL, from
+ * statement.unwrap(XGAsyncPreparedStatement.class). The parameters are read
+ * when the call starts on the pool, so leave them alone until the future
+ * completes.
+ */
+public interface XGAsyncPreparedStatement extends XGAsyncStatement, PreparedStatement
+{
+	CompletableFuture<ResultSet> executeQueryAsync();
+
+	CompletableFuture<Integer> executeUpdateAsync();
+}
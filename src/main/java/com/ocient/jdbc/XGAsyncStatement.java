@@ -0,0 +1,23 @@
+package com.ocient.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Statements that can run without blocking the caller, from
+ * statement.unwrap(XGAsyncStatement.class). The calls run on a pool shared by
+ * the driver of up to asyncThreads threads, and calls past that wait for a
+ * free thread. Futures complete on a pool thread, so dependent stages that
+ * block should use an executor of their own.
+ *
+ * A statement still runs one call at a time like any other, so use a statement
+ * per outstanding query. Cancelling a future cancels its query if it has
+ * started.
+ */
+public interface XGAsyncStatement extends Statement
+{
+	CompletableFuture<ResultSet> executeQueryAsync(String sql);
+
+	CompletableFuture<Integer> executeUpdateAsync(String sql);
+}
@@ -0,0 +1,186 @@
+package com.ocient.jdbc;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Loads rows into a table, from XGConnection.bulkLoader(). Rows are written as
+ * typed literals into multi-row INSERT statements of about CHUNK_BYTES each,
+ * and the chunks are sent as a pipelined batch once batchBytes of them are
+ * waiting. addRow() blocks while a batch is sent, so no more than about
+ * batchBytes of rows are ever buffered.
+ *
+ * Values are converted like prepared statement parameters, so the same types
+ * are supported. Not thread safe.
+ */
+public final class XGBulkLoader implements AutoCloseable
+{
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
+
+	private static final int CHUNK_BYTES = 1024 * 1024;
+
+	private final XGStatement stmt;
+	private final String insert;
+	private final long batchBytes;
+	private final StringBuilder chunk = new StringBuilder();
+	// Values per row, -1 until the first row when no columns were given
+	private int columns;
+	private int chunkRows = 0;
+	private long pendingBytes = 0;
+	private long rowCount = 0;
+	private boolean closed = false;
+
+	XGBulkLoader(final XGStatement stmt, final String table, final String[] columns, final long batchBytes)
+	{
+		this.stmt = stmt;
+		this.batchBytes = batchBytes;
+		if (columns.length == 0)
+		{
+			insert = "INSERT INTO " + table + " VALUES ";
+			this.columns = -1;
+		}
+		else
+		{
+			insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+			this.columns = columns.length;
+		}
+	}
+
+	private void addCounts(final int[] counts)
+	{
+		for (final int count : counts)
+		{
+			if (count > 0)
+			{
+				rowCount += count;
+			}
+		}
+	}
+
+	/*
+	 * Adds a row with a value for each column
+	 */
+	public void addRow(final Object... values) throws SQLException
+	{
+		if (closed)
+		{
+			LOGGER.log(Level.WARNING, "addRow() is throwing CALL_ON_CLOSED_OBJECT");
+			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
+		}
+
+		if (values.length == 0 || columns != -1 && values.length != columns)
+		{
+			LOGGER.log(Level.WARNING, String.format("addRow() is throwing INVALID_ARGUMENT, got %d values for %d columns", values.length, columns));
+			throw SQLStates.INVALID_ARGUMENT.clone();
+		}
+
+		// Without a column list the first row sets the width
+		columns = values.length;
+		final int mark = chunk.length();
+		try
+		{
+			chunk.append(chunkRows == 0 ? insert : ", ").append('(');
+			for (int i = 0; i < values.length; i++)
+			{
+				if (i > 0)
+				{
+					chunk.append(", ");
+				}
+
+				SqlTemplate.appendLiteral(chunk, values[i]);
+			}
+
+			chunk.append(')');
+		}
+		catch (final SQLException e)
+		{
+			// Leave out the row that can't be converted
+			chunk.setLength(mark);
+			throw e;
+		}
+
+		chunkRows++;
+		if (chunk.length() >= CHUNK_BYTES)
+		{
+			endChunk();
+			if (pendingBytes >= batchBytes)
+			{
+				flush();
+			}
+		}
+	}
+
+	/*
+	 * Sends the rows that are left and closes the statement underneath
+	 */
+	@Override
+	public void close() throws SQLException
+	{
+		if (closed)
+		{
+			return;
+		}
+
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			closed = true;
+			stmt.close();
+		}
+	}
+
+	private void endChunk() throws SQLException
+	{
+		if (chunkRows > 0)
+		{
+			stmt.addBatch(chunk.toString());
+			pendingBytes += chunk.length();
+			chunk.setLength(0);
+			chunkRows = 0;
+		}
+	}
+
+	/*
+	 * Sends the rows added so far and waits for them to be inserted. If some
+	 * chunks fail the rest are still sent, and a BatchUpdateException is thrown
+	 * with an update count per chunk.
+	 */
+	public void flush() throws SQLException
+	{
+		if (closed)
+		{
+			LOGGER.log(Level.WARNING, "flush() is throwing CALL_ON_CLOSED_OBJECT");
+			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
+		}
+
+		endChunk();
+		if (pendingBytes == 0)
+		{
+			return;
+		}
+
+		pendingBytes = 0;
+		try
+		{
+			addCounts(stmt.executeBatch());
+		}
+		catch (final BatchUpdateException e)
+		{
+			addCounts(e.getUpdateCounts());
+			throw e;
+		}
+	}
+
+	/*
+	 * Returns the number of rows the database has reported inserted so far
+	 */
+	public long getRowCount()
+	{
+		return rowCount;
+	}
+}
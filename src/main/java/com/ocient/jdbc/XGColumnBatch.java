@@ -0,0 +1,168 @@
+package com.ocient.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * A run of buffered rows handed out by XGResultSet.nextBatch(). Rows are 0
+ * based and columns are 1 based like the rest of JDBC. With decodeMode=COLUMNAR
+ * the column arrays of a whole fetched batch are returned without copying, so
+ * they must not be modified. The column arrays stay valid, but the other
+ * methods may only be used until the next call to next() or nextBatch() on the
+ * result set, since the batch underneath gets reused.
+ */
+public final class XGColumnBatch
+{
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
+
+	private final RowBatch rows;
+	private final int from;
+	private final int numRows;
+
+	XGColumnBatch(final RowBatch rows, final int from, final int numRows)
+	{
+		this.rows = rows;
+		this.from = from;
+		this.numRows = numRows;
+	}
+
+	private void checkColumn(final int columnIndex) throws SQLException
+	{
+		if (columnIndex < 1 || columnIndex > getColumnCount())
+		{
+			LOGGER.log(Level.WARNING, "XGColumnBatch is throwing COLUMN_NOT_FOUND");
+			throw SQLStates.COLUMN_NOT_FOUND.clone();
+		}
+	}
+
+	private void checkNumber(final int row, final int col) throws SQLException
+	{
+		if (!rows.isNumber(row, col))
+		{
+			LOGGER.log(Level.WARNING, "XGColumnBatch is throwing INVALID_DATA_TYPE_CONVERSION");
+			throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
+		}
+	}
+
+	private void checkRow(final int row) throws SQLException
+	{
+		if (row < 0 || row >= numRows)
+		{
+			LOGGER.log(Level.WARNING, "XGColumnBatch is throwing INVALID_ARGUMENT");
+			throw SQLStates.INVALID_ARGUMENT.clone();
+		}
+	}
+
+	public int getColumnCount() throws SQLException
+	{
+		return rows.numColumns(from);
+	}
+
+	/*
+	 * Returns the column converted like getDouble() would, with 0 for nulls
+	 */
+	public double[] getDoubleColumn(final int columnIndex) throws SQLException
+	{
+		checkColumn(columnIndex);
+		final ColumnVector vector = rows.vector(columnIndex - 1);
+		if (from == 0 && vector != null && vector.doubles != null && vector.doubles.length == numRows)
+		{
+			return vector.doubles;
+		}
+
+		final double[] retval = new double[numRows];
+		for (int i = 0; i < numRows; i++)
+		{
+			if (!rows.isNull(from + i, columnIndex - 1))
+			{
+				checkNumber(from + i, columnIndex - 1);
+				retval[i] = rows.getDouble(from + i, columnIndex - 1);
+			}
+		}
+
+		return retval;
+	}
+
+	/*
+	 * Returns the column converted like getInt() would, with 0 for nulls
+	 */
+	public int[] getIntColumn(final int columnIndex) throws SQLException
+	{
+		checkColumn(columnIndex);
+		final ColumnVector vector = rows.vector(columnIndex - 1);
+		if (from == 0 && vector != null && vector.ints != null && vector.isNumber() && vector.ints.length == numRows)
+		{
+			return vector.ints;
+		}
+
+		final int[] retval = new int[numRows];
+		for (int i = 0; i < numRows; i++)
+		{
+			if (!rows.isNull(from + i, columnIndex - 1))
+			{
+				checkNumber(from + i, columnIndex - 1);
+				retval[i] = rows.getInt(from + i, columnIndex - 1);
+			}
+		}
+
+		return retval;
+	}
+
+	/*
+	 * Returns the column converted like getLong() would, with 0 for nulls
+	 */
+	public long[] getLongColumn(final int columnIndex) throws SQLException
+	{
+		checkColumn(columnIndex);
+		final ColumnVector vector = rows.vector(columnIndex - 1);
+		if (from == 0 && vector != null && vector.longs != null && vector.isNumber() && vector.longs.length == numRows)
+		{
+			return vector.longs;
+		}
+
+		final long[] retval = new long[numRows];
+		for (int i = 0; i < numRows; i++)
+		{
+			if (!rows.isNull(from + i, columnIndex - 1))
+			{
+				checkNumber(from + i, columnIndex - 1);
+				retval[i] = rows.getLong(from + i, columnIndex - 1);
+			}
+		}
+
+		return retval;
+	}
+
+	public Object getObject(final int row, final int columnIndex) throws SQLException
+	{
+		checkColumn(columnIndex);
+		checkRow(row);
+		return rows.getObject(from + row, columnIndex - 1);
+	}
+
+	public int getRowCount()
+	{
+		return numRows;
+	}
+
+	public String getString(final int row, final int columnIndex) throws SQLException
+	{
+		checkColumn(columnIndex);
+		checkRow(row);
+		if (rows.isNull(from + row, columnIndex - 1))
+		{
+			return null;
+		}
+
+		return rows.getString(from + row, columnIndex - 1);
+	}
+
+	public boolean isNull(final int row, final int columnIndex) throws SQLException
+	{
+		checkColumn(columnIndex);
+		checkRow(row);
+		return rows.isNull(from + row, columnIndex - 1);
+	}
+}
@@ -3,13 +3,14 @@ package com.ocient.jdbc;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.MessageDigest;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
@@ -33,15 +34,19 @@ import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,50 +81,23 @@ import com.ocient.jdbc.proto.ClientWireProtocol.TestConnection;
 
 public class XGConnection implements Connection
 {
-	private class TestConnectionThread extends Thread
+	public enum DecodeMode
 	{
-		Exception e = null;
-
-		@Override
-		public void run()
-		{
-			try
-			{
-				LOGGER.log(Level.INFO, "Testing connection");
-
-				// send request
-				final ClientWireProtocol.TestConnection.Builder builder = ClientWireProtocol.TestConnection.newBuilder();
-				final TestConnection msg = builder.build();
-				final ClientWireProtocol.Request.Builder b2 = ClientWireProtocol.Request.newBuilder();
-				b2.setType(ClientWireProtocol.Request.RequestType.TEST_CONNECTION);
-				b2.setTestConnection(msg);
-				final Request wrapper = b2.build();
+		EAGER, // Decode every row into objects as soon as it is fetched
+		LAZY, // Keep fetched rows in wire format and decode values on access
+		COLUMNAR, // Like LAZY, plus primitive arrays for the fixed width columns
+	}
 
-				try
-				{
-					out.write(intToBytes(wrapper.getSerializedSize()));
-					wrapper.writeTo(out);
-					out.flush();
-					getStandardResponse();
-				}
-				catch (SQLException | IOException e)
-				{
-					LOGGER.log(Level.WARNING, String.format("Connection test failed with exception %s with message %s", e.toString(), e.getMessage()));
-					if (e instanceof SQLException && !SQLStates.UNEXPECTED_EOF.equals((SQLException) e))
-					{
-						throw e;
-					}
+	public enum Transport
+	{
+		SOCKET, // java.net.Socket behind buffered streams
+		CHANNEL, // SocketChannel with scatter reads, unencrypted connections only
+	}
 
-					reconnect();
-					run();
-					return;
-				}
-			}
-			catch (final Exception e)
-			{
-				this.e = e;
-			}
-		}
+	public enum EndpointSelection
+	{
+		LISTED, // Try SQL nodes in the order the server listed them
+		LEAST_LOADED, // Try the nodes this JVM has opened the fewest sessions to lately first
 	}
 
 	public enum Tls
@@ -244,10 +222,25 @@ public class XGConnection implements Connection
 
 	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
 
-	private static int bytesToInt(final byte[] val)
+	// Fetched data buffered by every result set in the JVM
+	static final BufferBudget jvmBufferBudget = new BufferBudget(0);
+
+	/*
+	 * Returns the number of fetched bytes buffered by all result sets in the JVM
+	 * that haven't been read yet
+	 */
+	public static long getJvmBufferedBytes()
+	{
+		return jvmBufferBudget.used();
+	}
+
+	/*
+	 * Returns the number of timer tasks (query timeouts, statements waiting to go
+	 * back to the cache and pool sweeps) pending on the driver's shared scheduler
+	 */
+	public static int getPendingTimerTasks()
 	{
-		final int ret = java.nio.ByteBuffer.wrap(val).getInt();
-		return ret;
+		return DriverScheduler.getPendingTasks();
 	}
 
 	private static byte[] intToBytes(final int val)
@@ -262,6 +255,7 @@ public class XGConnection implements Connection
 
 	protected BufferedInputStream in;
 	protected BufferedOutputStream out;
+	protected final FrameBuffer frames = new FrameBuffer();
 	private boolean closed = false;
 	private boolean connected = true;
 	private Socket sock;
@@ -296,10 +290,53 @@ public class XGConnection implements Connection
 	protected int secondaryIndex = -1;
 	protected int networkTimeout = 10000;
 	protected Tls tls;
-
-	// The timer is initially null, created when the first query timeout is set and
-	// destroyed on close()
-	private final AtomicReference<Timer> timer = new AtomicReference<>();
+	protected DecodeMode decodeMode = DecodeMode.EAGER;
+	// Fetched data buffered by the result sets of this connection and its copies
+	protected BufferBudget bufferBudget = new BufferBudget(0);
+	protected boolean adaptiveFetchSize = false;
+	protected long fetchTargetBytes = 8L * 1024 * 1024;
+	protected long fetchTargetMillis = 200;
+	protected int fetchPipelineDepth = 1;
+	protected int decodeThreads = 0;
+	protected Transport transport = Transport.SOCKET;
+	protected int sessionPoolSize = 0;
+	protected long sessionPoolIdleMillis = 60000;
+	protected long sessionPoolTestMillis = 5000;
+	protected boolean releaseIdleSessions = false;
+
+	// isValid() trusts a successful test for this long, 0 tests every time
+	protected long validationCacheMillis = 0;
+	// Client key pairs kept generated ahead of time per server DH group
+	protected int handshakeKeySpares = 0;
+	protected ReconnectPolicy reconnectPolicy = ReconnectPolicy.backoff(100, 2000, 0);
+	// Stagger between racing connect attempts, 0 connects one at a time
+	protected long raceConnectMillis = 0;
+	protected EndpointSelection endpointSelection = EndpointSelection.LISTED;
+	// Most statements or request bytes executeBatch() writes before reading the
+	// responses
+	protected int batchRows = 1000;
+	protected long batchBytes = 4194304;
+	// Threads the driver's async statement pool grows to
+	protected int asyncThreads = 16;
+
+	// Idle sessions kept open in the session pool for statements to start on,
+	// topped up in the background
+	private static final long STANDBY_CHECK_MILLIS = 5000;
+	protected int standbySessions = 0;
+	protected long standbyWaitMillis = 0;
+	private volatile List<Object> standbyKey = null;
+	private final AtomicBoolean standbyFilling = new AtomicBoolean(false);
+	private final CompletableFuture<Void> standbyReady = new CompletableFuture<>();
+	private ScheduledFuture<?> standbyTask = null;
+	private boolean reconnecting = false;
+	private volatile long lastValidated = 0;
+	// Set while the session is back in the pool between requests
+	private boolean detached = false;
+	// Set on copies that can go back to the session pool, along with what was
+	// replayed to the server once the copy was set up
+	private List<Object> poolKey = null;
+	private List<Object> leaseState = null;
+	private boolean isCopy = false;
 
 	protected String pwd;
 	private int retryCounter;
@@ -325,6 +362,7 @@ public class XGConnection implements Connection
 		in = null;
 		out = null;
 		this.properties = properties;
+		resetConnectVars();
 	}
 
 	public XGConnection(final String user, final String pwd, final String ip, final int portNum, final String url, final String database, final String driverVersion, final String force, final Tls tls,
@@ -351,6 +389,39 @@ public class XGConnection implements Connection
 		this.tls = tls;
 		typeMap = new HashMap<>();
 		this.properties = properties;
+		resetConnectVars();
+		if (properties.containsKey("reconnectPolicy") && properties.get("reconnectPolicy") != null)
+		{
+			reconnectPolicy = newReconnectPolicy((String) properties.get("reconnectPolicy"));
+		}
+	}
+
+	/*
+	 * Closes the socket without telling the server, for a session that may still
+	 * have a response on its way. The next request reconnects.
+	 */
+	private void abandonSession()
+	{
+		try
+		{
+			if (in != null)
+			{
+				in.close();
+			}
+
+			if (out != null)
+			{
+				out.close();
+			}
+
+			if (sock != null)
+			{
+				sock.close();
+			}
+		}
+		catch (final IOException e)
+		{
+		}
 	}
 
 	@Override
@@ -372,14 +443,16 @@ public class XGConnection implements Connection
 	}
 
 	/**
-	 * Schedules the task to run after the specified delay
+	 * Schedules the task to run after the specified delay on the driver's shared
+	 * scheduler
 	 *
-	 * @param task    the task to run
+	 * @param task    the task to run, which must not block
 	 * @param timeout delay in milliseconds
+	 * @return the future to cancel the task with
 	 */
-	protected void addTimeout(final TimerTask task, final long timeout)
+	protected ScheduledFuture<?> addTimeout(final Runnable task, final long timeout)
 	{
-		getTimer().schedule(task, timeout);
+		return DriverScheduler.schedule(task, timeout, TimeUnit.MILLISECONDS);
 	}
 
 	public void clearOneShotForce()
@@ -387,6 +460,41 @@ public class XGConnection implements Connection
 		oneShotForce = false;
 	}
 
+	/*
+	 * Gets a session again if the last one went back to the pool, from the pool
+	 * if there is one or else with a new handshake
+	 */
+	void attachSession() throws IOException, SQLException
+	{
+		if (!detached)
+		{
+			return;
+		}
+
+		detached = false;
+		final XGConnection pooled = SessionPool.lease(poolKey, sessionPoolTestMillis);
+		if (pooled != null)
+		{
+			takeSession(pooled);
+		}
+		else
+		{
+			reconnect();
+		}
+	}
+
+	/*
+	 * Returns a loader that inserts rows into table, with a value for each of
+	 * columns, or for every column of the table if none are given. table and
+	 * columns are used as SQL as is, so quote them if needed. The loader has its
+	 * own statement and must be closed to send the last rows.
+	 */
+	public XGBulkLoader bulkLoader(final String table, final String... columns) throws SQLException
+	{
+		LOGGER.log(Level.INFO, String.format("Called bulkLoader() for table %s", table));
+		return new XGBulkLoader((XGStatement) createStatement(), table, columns, batchBytes);
+	}
+
 	@Override
 	public void clearWarnings() throws SQLException
 	{
@@ -422,10 +530,7 @@ public class XGConnection implements Connection
 
 			// get response
 			final ClientWireProtocol.ClientConnectionResponse.Builder ccr = ClientWireProtocol.ClientConnectionResponse.newBuilder();
-			int length = getLength();
-			byte[] data = new byte[length];
-			readBytes(data);
-			ccr.mergeFrom(data);
+			frames.merge(in, getLength(), ccr);
 			ConfirmationResponse response = ccr.getResponse();
 			ResponseType rType = response.getType();
 			processResponseType(rType, response);
@@ -445,9 +550,7 @@ public class XGConnection implements Connection
 				final DHPublicKey pubKey = (DHPublicKey) keyFact.generatePublic(x509keySpec);
 				final DHParameterSpec params = pubKey.getParams();
 
-				final KeyPairGenerator keyGen = KeyPairGenerator.getInstance("DH");
-				keyGen.initialize(params);
-				final KeyPair kp = keyGen.generateKeyPair();
+				final KeyPair kp = HandshakeKeys.take(params, handshakeKeySpares);
 
 				final KeyAgreement ka = KeyAgreement.getInstance("DiffieHellman");
 				ka.init(kp.getPrivate());
@@ -532,10 +635,7 @@ public class XGConnection implements Connection
 
 			// getResponse
 			final ClientWireProtocol.ClientConnection2Response.Builder ccr2 = ClientWireProtocol.ClientConnection2Response.newBuilder();
-			length = getLength();
-			data = new byte[length];
-			readBytes(data);
-			ccr2.mergeFrom(data);
+			frames.merge(in, getLength(), ccr2);
 			response = ccr2.getResponse();
 			rType = response.getType();
 
@@ -663,51 +763,27 @@ public class XGConnection implements Connection
 		}
 
 		closed = true;
-
-		if (sock != null)
+		if (standbyTask != null)
 		{
-			try
-			{
-				sendClose();
-			}
-			catch (final Exception e)
-			{
-			}
+			standbyTask.cancel(false);
 		}
 
-		try
+		// Copies compare equal to the connection they came from, so only the
+		// connection the application opened drops the cached statements
+		if (!isCopy)
 		{
-			if (in != null)
-			{
-				in.close();
-			}
-
-			if (out != null)
-			{
-				out.close();
-			}
-
-			if (sock != null)
-			{
-				sock.close();
-			}
+			XGStatement.evictCache(this);
+			XGPreparedStatement.evictCache(this);
 		}
-		catch (final Exception e)
+
+		if (poolKey != null && isPoolable())
 		{
+			SessionPool.release(this, poolKey, sessionPoolSize, sessionPoolIdleMillis);
 		}
-
-		// Cleanup our timer, if one exists
-		Timer t = null;
-		do
+		else
 		{
-			t = timer.get();
-			if (t == null)
-			{
-				return;
-			}
+			closeSession();
 		}
-		while (!timer.compareAndSet(t, null));
-		t.cancel();
 	}
 
 	@Override
@@ -740,12 +816,24 @@ public class XGConnection implements Connection
 	private void connect(final String ip, final int port) throws Exception
 	{
 		LOGGER.log(Level.INFO, String.format("Trying to connect to IP: %s at port: %d", ip, port));
+		final long start = System.nanoTime();
 		try
 		{
 			switch (tls)
 			{
 				case OFF:
 					LOGGER.log(Level.INFO, "Unencrypted connection");
+					if (transport == Transport.CHANNEL)
+					{
+						final SocketChannel channel = ChannelTransport.open(ip, port, networkTimeout, 4194304);
+						sock = channel.socket();
+						in = new BufferedInputStream(new ChannelTransport.ChannelInputStream(channel));
+						out = new BufferedOutputStream(new ChannelTransport.ChannelOutputStream(channel), ChannelTransport.BUFFER_SIZE);
+						connectedIp = ip;
+						connectedPort = port;
+						break;
+					}
+
 					sock = new Socket();
 					sock.setReceiveBufferSize(4194304);
 					sock.setSendBufferSize(4194304);
@@ -760,6 +848,11 @@ public class XGConnection implements Connection
 				case ON:
 				case VERIFY:
 					LOGGER.log(Level.INFO, "TLS Connection " + tls.name());
+					if (transport == Transport.CHANNEL)
+					{
+						LOGGER.log(Level.INFO, "transport=CHANNEL is not supported with TLS, using a socket");
+					}
+
 					final SSLContext sc = SSLContext.getInstance("TLS");
 
 					final TrustManager[] tms = new TrustManager[] { new XGTrustManager(tls) };
@@ -778,9 +871,12 @@ public class XGConnection implements Connection
 					connectedPort = port;
 					break;
 			}
+
+			EndpointStats.connected(ip, port, System.nanoTime() - start);
 		}
 		catch (final Exception e)
 		{
+			EndpointStats.failed(ip, port);
 			try
 			{
 				if (in != null)
@@ -819,6 +915,44 @@ public class XGConnection implements Connection
 		}
 	}
 
+	/*
+	 * Tells the server the session is done and closes the socket
+	 */
+	void closeSession()
+	{
+		if (sock != null)
+		{
+			try
+			{
+				sendClose();
+			}
+			catch (final Exception e)
+			{
+			}
+		}
+
+		try
+		{
+			if (in != null)
+			{
+				in.close();
+			}
+
+			if (out != null)
+			{
+				out.close();
+			}
+
+			if (sock != null)
+			{
+				sock.close();
+			}
+		}
+		catch (final Exception e)
+		{
+		}
+	}
+
 	/*
 	 * Is the connection currently connected?
 	 */
@@ -837,8 +971,23 @@ public class XGConnection implements Connection
 		return copy(shouldRequestVersion, false);
 	}
 
-	@SuppressWarnings("unchecked")
 	public XGConnection copy(final boolean shouldRequestVersion, final boolean noRedirect) throws SQLException
+	{
+		final XGConnection retval = copy(shouldRequestVersion, noRedirect, true);
+		if (standbySessions > 0 && !isCopy)
+		{
+			replenishStandby();
+		}
+
+		return retval;
+	}
+
+	/*
+	 * Copies the connection for a statement, leasing a pooled session for it if
+	 * lease is set and there is one
+	 */
+	@SuppressWarnings("unchecked")
+	private XGConnection copy(final boolean shouldRequestVersion, final boolean noRedirect, final boolean lease) throws SQLException
 	{
 		boolean doForce = force;
 		if (noRedirect)
@@ -849,6 +998,7 @@ public class XGConnection implements Connection
 		final XGConnection retval = new XGConnection(user, pwd, portNum, url, database, driverVersion, doForce, tls, properties);
 		try
 		{
+			retval.isCopy = true;
 			retval.connected = false;
 			retval.setSchema = setSchema;
 			retval.defaultSchema = defaultSchema;
@@ -864,8 +1014,37 @@ public class XGConnection implements Connection
 			retval.originalPort = originalPort;
 			retval.tls = tls;
 			retval.serverVersion = serverVersion;
-			retval.reconnect(shouldRequestVersion);
+			retval.bufferBudget = bufferBudget;
+			retval.reconnectPolicy = reconnectPolicy;
+
+			// Sessions that asked for the server version or must not be redirected
+			// always get a fresh handshake
+			XGConnection pooled = null;
+			retval.resetPoolVars();
+			if (retval.sessionPoolSize > 0 && !shouldRequestVersion && !noRedirect)
+			{
+				retval.poolKey = retval.sessionState();
+				if (lease)
+				{
+					pooled = SessionPool.lease(retval.poolKey, retval.sessionPoolTestMillis);
+				}
+			}
+
+			if (pooled != null)
+			{
+				LOGGER.log(Level.INFO, "Reusing a pooled session for the copied connection");
+				retval.takeSession(pooled);
+			}
+			else
+			{
+				retval.reconnect(shouldRequestVersion);
+			}
+
 			retval.resetLocalVars();
+			if (retval.poolKey != null)
+			{
+				retval.leaseState = retval.sessionState();
+			}
 		}
 		catch (final Exception e)
 		{
@@ -1036,6 +1215,8 @@ public class XGConnection implements Connection
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
+		attachSession();
+
 		// send request
 		final ClientWireProtocol.ForceExternal.Builder builder = ClientWireProtocol.ForceExternal.newBuilder();
 		builder.setForce(force);
@@ -1109,6 +1290,15 @@ public class XGConnection implements Connection
 		return null;
 	}
 
+	/*
+	 * Returns the number of fetched bytes buffered by the result sets of this
+	 * connection that haven't been read yet
+	 */
+	public long getBufferedBytes()
+	{
+		return bufferBudget.used();
+	}
+
 	public String getDB()
 	{
 		return database;
@@ -1129,21 +1319,7 @@ public class XGConnection implements Connection
 
 	private int getLength() throws Exception
 	{
-		final byte[] inMsg = new byte[4];
-
-		int count = 0;
-		while (count < 4)
-		{
-			final int temp = in.read(inMsg, count, 4 - count);
-			if (temp == -1)
-			{
-				throw new IOException();
-			}
-
-			count += temp;
-		}
-
-		return bytesToInt(inMsg);
+		return frames.readLength(in);
 	}
 
 	public int getMajorVersion()
@@ -1211,6 +1387,8 @@ public class XGConnection implements Connection
 
 	private String getSchemaFromServer() throws Exception
 	{
+		attachSession();
+
 		// send request
 		final ClientWireProtocol.GetSchema.Builder builder = ClientWireProtocol.GetSchema.newBuilder();
 		final GetSchema msg = builder.build();
@@ -1243,10 +1421,7 @@ public class XGConnection implements Connection
 
 		try
 		{
-			final int length = getLength();
-			final byte[] data = new byte[length];
-			readBytes(data);
-			gsr.mergeFrom(data);
+			frames.merge(in, getLength(), gsr);
 		}
 		catch (SQLException | IOException e)
 		{
@@ -1280,11 +1455,8 @@ public class XGConnection implements Connection
 
 	private void getStandardResponse() throws Exception
 	{
-		final int length = getLength();
-		final byte[] data = new byte[length];
-		readBytes(data);
 		final ConfirmationResponse.Builder rBuild = ConfirmationResponse.newBuilder();
-		rBuild.mergeFrom(data);
+		frames.merge(in, getLength(), rBuild);
 		final ResponseType rType = rBuild.getType();
 		processResponseType(rType, rBuild.build());
 	}
@@ -1294,14 +1466,6 @@ public class XGConnection implements Connection
 		return timeoutMillis;
 	}
 
-	/**
-	 * Creates a new {@link Timer} or returns the existing one if it already exists
-	 */
-	private Timer getTimer()
-	{
-		return timer.updateAndGet(existing -> existing != null ? existing : new Timer());
-	}
-
 	@Override
 	public int getTransactionIsolation() throws SQLException
 	{
@@ -1419,6 +1583,23 @@ public class XGConnection implements Connection
 		}
 	}
 
+	/*
+	 * Can this connection's session be handed to another connection? Only if
+	 * nothing changed the session since it was set up and there is no request
+	 * or data outstanding on it
+	 */
+	private boolean isPoolable()
+	{
+		try
+		{
+			return connected && sock != null && !sock.isClosed() && (rs == null || rs.isClosed()) && sessionState().equals(leaseState) && in.available() == 0;
+		}
+		catch (final Exception e)
+		{
+			return false;
+		}
+	}
+
 	@Override
 	public boolean isValid(final int arg0) throws SQLException
 	{
@@ -1435,30 +1616,49 @@ public class XGConnection implements Connection
 			return false;
 		}
 
+		if (validationCacheMillis > 0 && System.currentTimeMillis() - lastValidated < validationCacheMillis)
+		{
+			return true;
+		}
+
 		boolean retval = false;
 		try
 		{
-			final XGConnection clone = copy();
-			retval = copy().testConnection(arg0);
-			clone.close();
+			retval = testLiveSession(arg0 * 1000);
 		}
 		catch (final Exception e)
 		{
+			LOGGER.log(Level.WARNING, String.format("isValid() failed with exception %s with message %s", e.toString(), e.getMessage()));
 		}
 
 		if (!retval)
 		{
 			LOGGER.log(Level.SEVERE, "Returning false from isValid() because connection test failed");
+			return false;
 		}
 
-		return retval;
+		lastValidated = System.currentTimeMillis();
+		return true;
 	}
 
 	@Override
 	public boolean isWrapperFor(final Class<?> iface) throws SQLException
 	{
 		LOGGER.log(Level.INFO, "Called isWrapperFor()");
-		return false;
+		return iface.isInstance(this);
+	}
+
+	/*
+	 * The SQL nodes' interface lists in the order reconnect() should try them
+	 */
+	private List<ArrayList<String>> nodesToTry()
+	{
+		if (endpointSelection == EndpointSelection.LEAST_LOADED)
+		{
+			return EndpointStats.leastLoadedFirst(secondaryInterfaces, list -> list);
+		}
+
+		return secondaryInterfaces;
 	}
 
 	@Override
@@ -1474,6 +1674,25 @@ public class XGConnection implements Connection
 		return arg0;
 	}
 
+	/*
+	 * Creates the reconnect policy named by the reconnectPolicy property, a class
+	 * with a public no argument constructor
+	 */
+	private static ReconnectPolicy newReconnectPolicy(final String className) throws SQLException
+	{
+		try
+		{
+			return Class.forName(className).asSubclass(ReconnectPolicy.class).getDeclaredConstructor().newInstance();
+		}
+		catch (final ReflectiveOperationException | ClassCastException e)
+		{
+			LOGGER.log(Level.WARNING, String.format("Creating reconnectPolicy %s failed with exception %s with message %s", className, e.toString(), e.getMessage()));
+			final SQLException sqle = SQLStates.INVALID_ARGUMENT.cloneAndSpecify("Invalid reconnectPolicy " + className);
+			sqle.initCause(e);
+			throw sqle;
+		}
+	}
+
 	@Override
 	public CallableStatement prepareCall(final String arg0) throws SQLException
 	{
@@ -1603,35 +1822,109 @@ public class XGConnection implements Connection
 		}
 	}
 
-	/**
-	 * Purges all canceled tasks from the timer.
-	 *
-	 * <p>
-	 * Note: You should only call this if you've canceled a timer. This call may
-	 * create a {@link Timer} object if one does not already exist
+	/*
+	 * Connects to the SQL node interfaces all at once instead of one at a time,
+	 * the ones on this connection's secondary index first, and does the handshake
+	 * on the first socket to open. Returns false if none could be reached or the
+	 * handshake failed, leaving the one at a time search to try again.
 	 */
-	protected void purgeTimeoutTasks()
-	{
-		getTimer().purge();
-	}
-
-	private void readBytes(final byte[] data) throws Exception
+	private boolean raceSecondaryInterfaces(final boolean shouldRequestVersion)
 	{
-		final int z = data.length;
-		int count = 0;
-		while (count < z)
+		final List<ArrayList<String>> nodes = nodesToTry();
+		final ArrayList<String> addresses = new ArrayList<>();
+		final ArrayList<Integer> indexes = new ArrayList<>();
+		if (secondaryIndex != -1)
 		{
-			final int temp = in.read(data, count, z - count);
-			if (temp == -1)
+			for (final ArrayList<String> list : nodes)
 			{
-				throw new IOException();
+				if (secondaryIndex < list.size())
+				{
+					addresses.add(list.get(secondaryIndex));
+					indexes.add(secondaryIndex);
+				}
 			}
+		}
 
-			count += temp;
+		for (final ArrayList<String> list : nodes)
+		{
+			for (int index = 0; index < list.size(); index++)
+			{
+				if (!addresses.contains(list.get(index)))
+				{
+					addresses.add(list.get(index));
+					indexes.add(index);
+				}
+			}
 		}
-	}
 
-	public void reconnect() throws IOException, SQLException
+		if (addresses.size() < 2)
+		{
+			return false;
+		}
+
+		final ArrayList<ConnectRace.Attempt<XGConnection>> attempts = new ArrayList<>();
+		for (int i = 0; i < addresses.size(); i++)
+		{
+			final StringTokenizer tokens = new StringTokenizer(addresses.get(i), ":", false);
+			final String host = tokens.nextToken();
+			final int port = Integer.parseInt(tokens.nextToken());
+			final int index = indexes.get(i);
+			attempts.add(() ->
+			{
+				final XGConnection scout = new XGConnection(user, pwd, port, url, database, driverVersion, force, tls, properties);
+				scout.transport = transport;
+				scout.networkTimeout = networkTimeout;
+				scout.connect(host, port);
+				scout.ip = host;
+				scout.secondaryIndex = index;
+				return scout;
+			});
+		}
+
+		final XGConnection winner;
+		try
+		{
+			winner = ConnectRace.first(attempts, raceConnectMillis, XGConnection::abandonSession);
+		}
+		catch (final Exception e)
+		{
+			LOGGER.log(Level.WARNING, String.format("Racing connects to the secondary interfaces failed with exception %s with message %s", e.toString(), e.getMessage()));
+			return false;
+		}
+
+		takeSession(winner);
+		try
+		{
+			clientHandshake(user, pwd, database, shouldRequestVersion);
+			if (!setSchema.equals(""))
+			{
+				setSchema(setSchema);
+			}
+
+			if (setPso == -1)
+			{
+				// We have to turn it off
+				setPSO(false);
+			}
+			else if (setPso > 0)
+			{
+				// Set non-default threshold
+				setPSO(setPso);
+			}
+
+			resendParameters();
+			return true;
+		}
+		catch (final Exception handshakeException)
+		{
+			LOGGER.log(Level.WARNING, String.format("Handshake after racing connects failed with exception %s with message %s", handshakeException.toString(), handshakeException.getMessage()));
+			abandonSession();
+			connected = false;
+			return false;
+		}
+	}
+
+	public void reconnect() throws IOException, SQLException
 	{
 		reconnect(false);
 	}
@@ -1641,32 +1934,74 @@ public class XGConnection implements Connection
 	 */
 	public void reconnect(final boolean shouldRequestVersion) throws IOException, SQLException
 	{
-		// Try to find any cmdcomp that we can connect to
-		// If we can't connect to any throw IOException
-
 		// There's an issue here that we don't want to force
 		// But we could get redirected back to the dead node
 		// Until the heartbeat timeout happens
 		// Which could be up to 30 seconds
-		// If the redirect fails, it will call reconnect
-		// And we will end up looping until the heartbeat times out
-		// In 30 seconds, we would totally blow out the stack
+		// If the redirect fails, it used to call reconnect
+		// And we would end up looping until the heartbeat times out
 
 		// Even forcing, it only guarantees the first request after reconnect
 		// is forced, which if the client is making a fast series of short
 		// requests, puts us in the same situation
 
-		// We solve this by delaying slightly, which will slow the rate
-		// of stack growth enough that we will be ok
+		// So the retrying happens in this loop, paced by the reconnect policy.
+		// A redirect or reconnect that fails while we are in here throws back to
+		// the loop rather than starting another one.
 		LOGGER.log(Level.INFO, String.format("Entered reconnect() with shouldRequestVersion: %b", shouldRequestVersion));
+		detached = false;
+		if (reconnecting)
+		{
+			reconnectOnce(shouldRequestVersion);
+			return;
+		}
+
+		reconnecting = true;
 		try
 		{
-			Thread.sleep(250);
+			final long start = System.currentTimeMillis();
+			int failures = 0;
+			while (true)
+			{
+				try
+				{
+					reconnectOnce(shouldRequestVersion);
+					return;
+				}
+				catch (final IOException e)
+				{
+					failures++;
+					final long delay = reconnectPolicy.delayMillis(failures, System.currentTimeMillis() - start);
+					if (delay < 0)
+					{
+						throw e;
+					}
+
+					LOGGER.log(Level.INFO, String.format("Reconnect attempt %d failed, trying again in %d ms", failures, delay));
+					try
+					{
+						Thread.sleep(delay);
+					}
+					catch (final InterruptedException f)
+					{
+						Thread.currentThread().interrupt();
+						throw e;
+					}
+				}
+			}
 		}
-		catch (final InterruptedException e)
+		finally
 		{
+			reconnecting = false;
 		}
+	}
 
+	/*
+	 * Try to find any cmdcomp that we can connect to
+	 * If we can't connect to any throw IOException
+	 */
+	private void reconnectOnce(final boolean shouldRequestVersion) throws IOException, SQLException
+	{
 		try
 		{
 			if (in != null)
@@ -1758,12 +2093,18 @@ public class XGConnection implements Connection
 			}
 		}
 
+		if (raceConnectMillis > 0 && raceSecondaryInterfaces(shouldRequestVersion))
+		{
+			return;
+		}
+
 		// capture any exception from trying to connect
 		SQLException retVal = null;
+		final List<ArrayList<String>> nodes = nodesToTry();
 		if (secondaryIndex != -1)
 		{
 			LOGGER.log(Level.INFO, "reconnect() Trying secondary interfaces");
-			for (final ArrayList<String> list : secondaryInterfaces)
+			for (final ArrayList<String> list : nodes)
 			{
 				final String cmdcomp = list.get(secondaryIndex);
 				final StringTokenizer tokens = new StringTokenizer(cmdcomp, ":", false);
@@ -1831,7 +2172,7 @@ public class XGConnection implements Connection
 		}
 
 		// We should just try them all
-		for (final ArrayList<String> list : secondaryInterfaces)
+		for (final ArrayList<String> list : nodes)
 		{
 			LOGGER.log(Level.WARNING, "Trying secondary interfaces again");
 			int index = 0;
@@ -2056,7 +2397,7 @@ public class XGConnection implements Connection
 			{
 
 				LOGGER.log(Level.WARNING, String.format("Exception %s occurred in redirect() with message %s", e.toString(), e.getMessage()));
-				reconnect();
+				redirectFailed();
 				return;
 			}
 
@@ -2094,7 +2435,7 @@ public class XGConnection implements Connection
 				{
 				}
 
-				reconnect();
+				redirectFailed();
 			}
 		}
 		else
@@ -2154,10 +2495,25 @@ public class XGConnection implements Connection
 				}
 			}
 
-			reconnect(); // Everything else failed, so just call reconnect()
+			redirectFailed(); // Everything else failed, so fall back to reconnect()
 		}
 	}
 
+	/*
+	 * Falls back to reconnect() when a redirect can't be followed. Inside
+	 * reconnect() the failure goes back to its retry loop instead, so failed
+	 * redirects can't nest reconnects.
+	 */
+	private void redirectFailed() throws IOException, SQLException
+	{
+		if (reconnecting)
+		{
+			throw new IOException(String.format("Redirect to %s:%d failed", ip, portNum));
+		}
+
+		reconnect();
+	}
+
 	@Override
 	public void releaseSavepoint(final Savepoint arg0) throws SQLException
 	{
@@ -2165,6 +2521,66 @@ public class XGConnection implements Connection
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	/*
+	 * With releaseIdleSessions, gives the session back to the pool while nothing
+	 * is running on it. attachSession() gets one again before the next request.
+	 */
+	void releaseSession()
+	{
+		if (!releaseIdleSessions || poolKey == null || detached || closed || !isPoolable())
+		{
+			return;
+		}
+
+		final XGConnection holder = new XGConnection(user, pwd, portNum, url, database, driverVersion, force, tls, properties);
+		holder.takeSession(this);
+		holder.closed = true;
+		detached = true;
+		SessionPool.release(holder, poolKey, sessionPoolSize, sessionPoolIdleMillis);
+	}
+
+	/*
+	 * Opens standby sessions on a worker thread until the pool holds
+	 * standbySessions of them for this connection's statements
+	 */
+	private void replenishStandby()
+	{
+		if (closed || !standbyFilling.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		DriverScheduler.execute(() ->
+		{
+			try
+			{
+				// Bounded in case sessions don't make it into the pool
+				for (int i = 0; i < standbySessions && !closed; i++)
+				{
+					final List<Object> key = standbyKey;
+					if (key != null && SessionPool.idleCount(key) >= standbySessions)
+					{
+						break;
+					}
+
+					final XGConnection standby = copy(false, false, false);
+					standbyKey = standby.poolKey;
+					standby.close();
+				}
+			}
+			catch (final SQLException e)
+			{
+				LOGGER.log(Level.WARNING, String.format("Opening a standby session failed with exception %s with message %s", e.toString(), e.getMessage()));
+			}
+			finally
+			{
+				// Connecting waits on the first fill whether or not it worked
+				standbyReady.complete(null);
+				standbyFilling.set(false);
+			}
+		});
+	}
+
 	private void resendParameters()
 	{
 		if (maxRows != null)
@@ -2231,6 +2647,164 @@ public class XGConnection implements Connection
 		resendParameters();
 	}
 
+	/*
+	 * Settings used before a connection has a session, so they are read when it
+	 * is constructed rather than after the handshake
+	 */
+	private void resetConnectVars()
+	{
+		if (properties.containsKey("asyncThreads") && properties.get("asyncThreads") != null)
+		{
+			asyncThreads = Math.max(1, Integer.parseInt((String) properties.get("asyncThreads")));
+		}
+		else
+		{
+			asyncThreads = 16;
+		}
+
+		if (properties.containsKey("batchRows") && properties.get("batchRows") != null)
+		{
+			batchRows = Math.max(1, Integer.parseInt((String) properties.get("batchRows")));
+		}
+		else
+		{
+			batchRows = 1000;
+		}
+
+		if (properties.containsKey("batchBytes") && properties.get("batchBytes") != null)
+		{
+			batchBytes = Math.max(1, Long.parseLong((String) properties.get("batchBytes")));
+		}
+		else
+		{
+			batchBytes = 4194304;
+		}
+
+		if (properties.containsKey("validationCacheMillis") && properties.get("validationCacheMillis") != null)
+		{
+			validationCacheMillis = Long.parseLong((String) properties.get("validationCacheMillis"));
+		}
+		else
+		{
+			validationCacheMillis = 0;
+		}
+
+		if (properties.containsKey("handshakeKeySpares") && properties.get("handshakeKeySpares") != null)
+		{
+			handshakeKeySpares = Integer.parseInt((String) properties.get("handshakeKeySpares"));
+		}
+		else
+		{
+			handshakeKeySpares = 0;
+		}
+
+		if (properties.containsKey("endpointSelection") && properties.get("endpointSelection") != null)
+		{
+			endpointSelection = EndpointSelection.valueOf(properties.getProperty("endpointSelection").toUpperCase());
+		}
+		else
+		{
+			endpointSelection = EndpointSelection.LISTED;
+		}
+
+		if (properties.containsKey("standbySessions") && properties.get("standbySessions") != null)
+		{
+			standbySessions = Integer.parseInt((String) properties.get("standbySessions"));
+		}
+		else
+		{
+			standbySessions = 0;
+		}
+
+		if (properties.containsKey("standbyWaitMillis") && properties.get("standbyWaitMillis") != null)
+		{
+			standbyWaitMillis = Long.parseLong((String) properties.get("standbyWaitMillis"));
+		}
+		else
+		{
+			standbyWaitMillis = 0;
+		}
+
+		if (properties.containsKey("raceConnectMillis") && properties.get("raceConnectMillis") != null)
+		{
+			raceConnectMillis = Long.parseLong((String) properties.get("raceConnectMillis"));
+		}
+		else
+		{
+			raceConnectMillis = 0;
+		}
+
+		// A reconnectPolicy class is created by the constructor that can throw, and
+		// copies share that instance
+		if (!properties.containsKey("reconnectPolicy") || properties.get("reconnectPolicy") == null)
+		{
+			long backoff = 100;
+			long maxBackoff = 2000;
+			long deadline = 0;
+			if (properties.containsKey("reconnectBackoffMillis") && properties.get("reconnectBackoffMillis") != null)
+			{
+				backoff = Long.parseLong((String) properties.get("reconnectBackoffMillis"));
+			}
+
+			if (properties.containsKey("reconnectMaxBackoffMillis") && properties.get("reconnectMaxBackoffMillis") != null)
+			{
+				maxBackoff = Long.parseLong((String) properties.get("reconnectMaxBackoffMillis"));
+			}
+
+			if (properties.containsKey("reconnectDeadlineMillis") && properties.get("reconnectDeadlineMillis") != null)
+			{
+				deadline = Long.parseLong((String) properties.get("reconnectDeadlineMillis"));
+			}
+
+			reconnectPolicy = ReconnectPolicy.backoff(backoff, maxBackoff, deadline);
+		}
+	}
+
+	/*
+	 * Reads the session pool properties, copy() needs these before the rest
+	 */
+	private void resetPoolVars()
+	{
+		if (properties.containsKey("sessionPoolSize") && properties.get("sessionPoolSize") != null)
+		{
+			sessionPoolSize = Integer.parseInt((String) properties.get("sessionPoolSize"));
+		}
+		else
+		{
+			sessionPoolSize = 0;
+		}
+
+		// Standby sessions wait in the pool, so it must have room for them
+		sessionPoolSize = Math.max(sessionPoolSize, standbySessions);
+
+		if (properties.containsKey("sessionPoolIdleMillis") && properties.get("sessionPoolIdleMillis") != null)
+		{
+			sessionPoolIdleMillis = Long.parseLong((String) properties.get("sessionPoolIdleMillis"));
+		}
+		else
+		{
+			sessionPoolIdleMillis = 60000;
+		}
+
+		if (properties.containsKey("sessionPoolTestMillis") && properties.get("sessionPoolTestMillis") != null)
+		{
+			sessionPoolTestMillis = Long.parseLong((String) properties.get("sessionPoolTestMillis"));
+		}
+		else
+		{
+			sessionPoolTestMillis = 5000;
+		}
+
+		if (properties.containsKey("releaseIdleSessions") && properties.get("releaseIdleSessions") != null)
+		{
+			releaseIdleSessions = Boolean.parseBoolean((String) properties.get("releaseIdleSessions"));
+		}
+		else
+		{
+			releaseIdleSessions = false;
+		}
+	}
+
 	void resetLocalVars()
 	{
 		// Reset all the member variables
@@ -2314,6 +2888,86 @@ public class XGConnection implements Connection
 		{
 			timeoutMillis = 0;
 		}
+
+		if (properties.containsKey("decodeMode") && properties.get("decodeMode") != null)
+		{
+			decodeMode = DecodeMode.valueOf(properties.getProperty("decodeMode").toUpperCase());
+		}
+		else
+		{
+			decodeMode = DecodeMode.EAGER;
+		}
+
+		if (properties.containsKey("maxBufferedBytes") && properties.get("maxBufferedBytes") != null)
+		{
+			bufferBudget.setLimit(Long.parseLong((String) properties.get("maxBufferedBytes")));
+		}
+		else
+		{
+			bufferBudget.setLimit(0);
+		}
+
+		if (properties.containsKey("adaptiveFetchSize") && properties.get("adaptiveFetchSize") != null)
+		{
+			adaptiveFetchSize = Boolean.parseBoolean((String) properties.get("adaptiveFetchSize"));
+		}
+		else
+		{
+			adaptiveFetchSize = false;
+		}
+
+		if (properties.containsKey("fetchTargetBytes") && properties.get("fetchTargetBytes") != null)
+		{
+			fetchTargetBytes = Long.parseLong((String) properties.get("fetchTargetBytes"));
+		}
+		else
+		{
+			fetchTargetBytes = 8L * 1024 * 1024;
+		}
+
+		if (properties.containsKey("fetchTargetMillis") && properties.get("fetchTargetMillis") != null)
+		{
+			fetchTargetMillis = Long.parseLong((String) properties.get("fetchTargetMillis"));
+		}
+		else
+		{
+			fetchTargetMillis = 200;
+		}
+
+		if (properties.containsKey("fetchPipelineDepth") && properties.get("fetchPipelineDepth") != null)
+		{
+			fetchPipelineDepth = Integer.parseInt((String) properties.get("fetchPipelineDepth"));
+		}
+		else
+		{
+			fetchPipelineDepth = 1;
+		}
+
+		if (properties.containsKey("transport") && properties.get("transport") != null)
+		{
+			transport = Transport.valueOf(properties.getProperty("transport").toUpperCase());
+		}
+		else
+		{
+			transport = Transport.SOCKET;
+		}
+
+		if (properties.containsKey("decodeThreads") && properties.get("decodeThreads") != null)
+		{
+			decodeThreads = Integer.parseInt((String) properties.get("decodeThreads"));
+		}
+		else
+		{
+			decodeThreads = 0;
+		}
+
+		resetPoolVars();
+
+		// JVM wide, so only touched by connections that ask for it
+		if (properties.containsKey("maxJvmBufferedBytes") && properties.get("maxJvmBufferedBytes") != null)
+		{
+			jvmBufferBudget.setLimit(Long.parseLong((String) properties.get("maxJvmBufferedBytes")));
+		}
 	}
 
 	@Override
@@ -2361,6 +3015,7 @@ public class XGConnection implements Connection
 
 		try
 		{
+			attachSession();
 			out.write(intToBytes(wrapper.getSerializedSize()));
 			wrapper.writeTo(out);
 			out.flush();
@@ -2375,8 +3030,19 @@ public class XGConnection implements Connection
 		return 0;
 	}
 
+	/*
+	 * Everything that identifies a session to the server, and the state that was
+	 * replayed to it after the handshake
+	 */
+	private List<Object> sessionState()
+	{
+		return Arrays.asList(ip, portNum, user, pwd, database, tls, setSchema, setPso, maxRows, maxTime, maxTempDisk, concurrency, priority);
+	}
+
 	private void sendSetSchema(final String schema) throws Exception
 	{
+		attachSession();
+
 		// send request
 		LOGGER.log(Level.INFO, String.format("Sending set schema (%s) request to the server", schema));
 		final ClientWireProtocol.SetSchema.Builder builder = ClientWireProtocol.SetSchema.newBuilder();
@@ -2522,6 +3188,8 @@ public class XGConnection implements Connection
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
+		attachSession();
+
 		if (on)
 		{
 			setPso = 0;
@@ -2567,6 +3235,8 @@ public class XGConnection implements Connection
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
+		attachSession();
+
 		// send request
 		setPso = threshold;
 		final ClientWireProtocol.SetParameter.Builder builder = ClientWireProtocol.SetParameter.newBuilder();
@@ -2606,6 +3276,20 @@ public class XGConnection implements Connection
 		}
 	}
 
+	/*
+	 * Replaces the policy reconnect() retries with. Statements created afterwards
+	 * use it too.
+	 */
+	public void setReconnectPolicy(final ReconnectPolicy policy)
+	{
+		if (policy == null)
+		{
+			throw new IllegalArgumentException("policy is null");
+		}
+
+		reconnectPolicy = policy;
+	}
+
 	@Override
 	public Savepoint setSavepoint() throws SQLException
 	{
@@ -2695,35 +3379,202 @@ public class XGConnection implements Connection
 		typeMap = arg0;
 	}
 
-	private boolean testConnection(final int timeoutSecs)
+	/*
+	 * Starts keeping standbySessions sessions ready for this connection's
+	 * statements, and waits up to standbyWaitMillis for all of them to open. The
+	 * standby set is checked every few seconds until the connection is closed or
+	 * dropped. If opening one fails the wait ends there, and the rest are opened
+	 * on a later check.
+	 */
+	void startStandby()
 	{
-		final TestConnectionThread thread = new TestConnectionThread();
-		thread.start();
+		if (standbySessions <= 0 || standbyTask != null)
+		{
+			return;
+		}
+
+		final WeakReference<XGConnection> ref = new WeakReference<>(this);
+		final ScheduledFuture<?>[] task = new ScheduledFuture<?>[1];
+		task[0] = DriverScheduler.scheduleAtFixedRate(() ->
+		{
+			final XGConnection conn = ref.get();
+			if (conn == null || conn.closed)
+			{
+				task[0].cancel(false);
+				return;
+			}
+
+			conn.replenishStandby();
+		}, STANDBY_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+		standbyTask = task[0];
+
+		replenishStandby();
+		if (standbyWaitMillis > 0)
+		{
+			try
+			{
+				standbyReady.get(standbyWaitMillis, TimeUnit.MILLISECONDS);
+			}
+			catch (final TimeoutException e)
+			{
+				LOGGER.log(Level.INFO, String.format("Standby sessions weren't ready after %d ms, going on without them", standbyWaitMillis));
+			}
+			catch (final Exception e)
+			{
+				LOGGER.log(Level.WARNING, String.format("Waiting for standby sessions failed with exception %s with message %s", e.toString(), e.getMessage()));
+			}
+		}
+	}
+
+	/*
+	 * Moves the socket of a pooled session over to this connection
+	 */
+	private void takeSession(final XGConnection pooled)
+	{
+		sock = pooled.sock;
+		in = pooled.in;
+		out = pooled.out;
+		ip = pooled.ip;
+		portNum = pooled.portNum;
+		connectedIp = pooled.connectedIp;
+		connectedPort = pooled.connectedPort;
+		secondaryIndex = pooled.secondaryIndex;
+		connected = true;
+		pooled.sock = null;
+		pooled.in = null;
+		pooled.out = null;
+	}
+
+	/*
+	 * Does a round trip on the session without reconnecting, for sessions coming
+	 * out of the pool
+	 */
+	boolean testSession()
+	{
+		return testSession(networkTimeout);
+	}
+
+	/*
+	 * Does a round trip on the session without reconnecting, giving up after
+	 * timeoutMillis (0 waits forever). A session that fails may still get the
+	 * response later, so it can't be used again.
+	 *
+	 * The read timeout only bounds each read, so a peer that answers a byte at a
+	 * time could keep the test going. Past the deadline the session is closed
+	 * under the test, which ends it on either transport.
+	 */
+	private boolean testSession(final int timeoutMillis)
+	{
+		final ClientWireProtocol.Request.Builder b2 = ClientWireProtocol.Request.newBuilder();
+		b2.setType(ClientWireProtocol.Request.RequestType.TEST_CONNECTION);
+		b2.setTestConnection(ClientWireProtocol.TestConnection.newBuilder().build());
+		final Request wrapper = b2.build();
+
+		ScheduledFuture<?> deadline = null;
 		try
 		{
-			thread.join(timeoutSecs * 1000);
+			if (timeoutMillis > 0)
+			{
+				final BufferedInputStream session = in;
+				deadline = DriverScheduler.schedule(() ->
+				{
+					LOGGER.log(Level.WARNING, String.format("Session test didn't finish in %d ms, closing the session", timeoutMillis));
+					try
+					{
+						session.close();
+					}
+					catch (final IOException e)
+					{
+					}
+				}, timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+
+			sock.setSoTimeout(timeoutMillis);
+			try
+			{
+				out.write(intToBytes(wrapper.getSerializedSize()));
+				wrapper.writeTo(out);
+				out.flush();
+				getStandardResponse();
+			}
+			finally
+			{
+				if (deadline != null)
+				{
+					deadline.cancel(false);
+				}
+
+				if (!sock.isClosed())
+				{
+					sock.setSoTimeout(0);
+				}
+			}
+
+			// The deadline may have closed the session as the response came in
+			return deadline == null || deadline.isCancelled();
 		}
 		catch (final Exception e)
 		{
+			LOGGER.log(Level.WARNING, String.format("Session test failed with exception %s with message %s", e.toString(), e.getMessage()));
+			return false;
+		}
+	}
+
+	/*
+	 * Tests this connection for isValid(). When it has a session of its own the
+	 * test goes over that socket, so validating doesn't open anything new.
+	 * Connections sharing the session of one that was already open have no socket
+	 * until a statement copies them, so those borrow one for the test, which
+	 * comes out of the session pool when it is on.
+	 */
+	private boolean testLiveSession(final int timeoutMillis) throws IOException, SQLException
+	{
+		final boolean wasDetached = detached;
+		attachSession();
+		if (sock == null || !connected)
+		{
+			final XGConnection clone = copy();
+			try
+			{
+				return clone.testSession(timeoutMillis);
+			}
+			finally
+			{
+				clone.close();
+			}
 		}
 
-		if (thread.isAlive())
+		// An open result set may still have data coming on the socket, and the
+		// server answered it recently enough
+		if (rs != null && !rs.isClosed())
 		{
-			return false;
+			return !sock.isClosed();
 		}
 
-		if (thread.e != null)
+		if (!testSession(timeoutMillis))
 		{
+			abandonSession();
 			return false;
 		}
 
+		if (wasDetached)
+		{
+			releaseSession();
+		}
+
 		return true;
 	}
 
 	@Override
 	public <T> T unwrap(final Class<T> iface) throws SQLException
 	{
-		LOGGER.log(Level.WARNING, "setSavepoint() was called, which is not supported");
-		throw new SQLFeatureNotSupportedException();
+		LOGGER.log(Level.INFO, "Called unwrap()");
+		if (!iface.isInstance(this))
+		{
+			LOGGER.log(Level.WARNING, String.format("unwrap() is throwing INVALID_ARGUMENT for %s", iface.getName()));
+			throw SQLStates.INVALID_ARGUMENT.clone();
+		}
+
+		return iface.cast(this);
 	}
 }
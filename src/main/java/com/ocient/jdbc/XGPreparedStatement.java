@@ -21,79 +21,36 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class XGPreparedStatement extends XGStatement implements PreparedStatement
+public class XGPreparedStatement extends XGStatement implements XGAsyncPreparedStatement
 {
-	class ReturnToCacheTask extends TimerTask
-	{
-		private final XGPreparedStatement stmt;
-
-		public ReturnToCacheTask(final XGPreparedStatement stmt)
-		{
-			this.stmt = stmt;
-		}
-
-		@Override
-		public void run()
-		{
-			reset();
+	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
 
-			// Cache this
-			synchronized (cache)
-			{
-				HashSet<XGPreparedStatement> list = cache.get(conn);
-				if (list == null)
-				{
-					list = new HashSet<>();
-					list.add(stmt);
-					cache.put(conn, list);
-				}
-				else
-				{
-					list.add(stmt);
-				}
-			}
+	private static final StatementCache<XGPreparedStatement> cache = new StatementCache<>(MAX_CACHED_STATEMENTS);
 
-			timer.cancel(); // Terminate the timer thread
-		}
+	/*
+	 * Closes the prepared statements cached for a connection that is being closed
+	 */
+	static void evictCache(final XGConnection conn)
+	{
+		cache.evict(conn);
 	}
 
-	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
-
-	private static HashMap<XGConnection, HashSet<XGPreparedStatement>> cache = new HashMap<>();
-
 	public static XGPreparedStatement newXGPreparedStatement(final XGConnection conn, final String sql, final boolean force, final boolean oneShotForce) throws SQLException
 	{
-		XGPreparedStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGPreparedStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGPreparedStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-
-					retval.force = force;
-					retval.oneShotForce = oneShotForce;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-					retval.sql = sql;
-					retval.closed = false;
-				}
-			}
-		}
-
+		final XGPreparedStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = force;
+			retval.oneShotForce = oneShotForce;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.sql = sql;
+			retval.closed = false;
+
 			try
 			{
 				if (conn.serverVersion == "")
@@ -128,29 +85,15 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw new SQLFeatureNotSupportedException();
 		}
 
-		XGPreparedStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGPreparedStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGPreparedStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-
-					retval.force = force;
-					retval.oneShotForce = oneShotForce;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-					retval.sql = sql;
-					retval.closed = false;
-				}
-			}
-		}
-
+		final XGPreparedStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = force;
+			retval.oneShotForce = oneShotForce;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.sql = sql;
+			retval.closed = false;
+
 			try
 			{
 				if (conn.serverVersion == "")
@@ -191,29 +134,15 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw new SQLFeatureNotSupportedException();
 		}
 
-		XGPreparedStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGPreparedStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGPreparedStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-
-					retval.force = force;
-					retval.oneShotForce = oneShotForce;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-					retval.sql = sql;
-					retval.closed = false;
-				}
-			}
-		}
-
+		final XGPreparedStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = force;
+			retval.oneShotForce = oneShotForce;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.sql = sql;
+			retval.closed = false;
+
 			try
 			{
 				if (conn.serverVersion == "")
@@ -234,6 +163,12 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 	}
 
 	private String sql;
+	// sql with the current parameters substituted, reused until a parameter
+	// changes
+	private String boundSql = null;
+	private String boundFrom = null;
+	// sql split at its parameter markers, found the first time it is bound
+	private SqlTemplate template = null;
 
 	public XGPreparedStatement(final XGConnection conn, final String sql, final boolean force, final boolean oneShotForce) throws SQLException
 	{
@@ -257,7 +192,8 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 	public void addBatch() throws SQLException
 	{
 		LOGGER.log(Level.INFO, "Called addBatch()");
-		addBatch(sql);
+		// The parameters are bound now, they can change before the next addBatch()
+		addBatch(setParms(sql));
 	}
 
 	@Override
@@ -271,6 +207,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 		}
 
 		parms.clear();
+		boundSql = null;
 	}
 
 	@Override
@@ -290,8 +227,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 
 			if (poolable)
 			{
-				timer = new Timer();
-				timer.schedule(new ReturnToCacheTask(this), 30 * 1000);
+				DriverScheduler.schedule(this::returnToCache, RETURN_TO_CACHE_SECONDS, TimeUnit.SECONDS);
 			}
 			else
 			{
@@ -314,6 +250,13 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 		return executeQuery(sql);
 	}
 
+	@Override
+	public CompletableFuture<ResultSet> executeQueryAsync()
+	{
+		LOGGER.log(Level.INFO, "Called executeQueryAsync()");
+		return executeQueryAsync(sql);
+	}
+
 	@Override
 	public int executeUpdate() throws SQLException
 	{
@@ -321,6 +264,13 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 		return executeUpdate(sql);
 	}
 
+	@Override
+	public CompletableFuture<Integer> executeUpdateAsync()
+	{
+		LOGGER.log(Level.INFO, "Called executeUpdateAsync()");
+		return executeUpdateAsync(sql);
+	}
+
 	@Override
 	public ResultSetMetaData getMetaData() throws SQLException
 	{
@@ -335,10 +285,18 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	@Override
+	protected boolean offerToCache()
+	{
+		return cache.offer(parentConn, this);
+	}
+
 	@Override
 	protected void reset()
 	{
 		sql = "";
+		boundSql = null;
+		template = null;
 		super.reset();
 	}
 
@@ -370,6 +328,21 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	/*
+	 * Sets parameter parameterIndex (1 based), replacing any earlier value so the
+	 * parameters can be changed between executions
+	 */
+	private void setParm(final int parameterIndex, final Object x)
+	{
+		while (parameterIndex > parms.size())
+		{
+			parms.add(null);
+		}
+
+		parms.set(parameterIndex - 1, x);
+		boundSql = null;
+	}
+
 	@Override
 	public void setBigDecimal(final int parameterIndex, final BigDecimal x) throws SQLException
 	{
@@ -380,18 +353,13 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
 		if (x.scale() >= 0)
 		{
-			parms.add(parameterIndex - 1, x);
+			setParm(parameterIndex, x);
 		}
 		else
 		{
-			parms.add(parameterIndex - 1, x.setScale(0));
+			setParm(parameterIndex, x.setScale(0));
 		}
 	}
 
@@ -447,12 +415,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -465,12 +428,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -483,12 +441,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -543,12 +496,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -568,12 +516,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -586,12 +529,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -604,12 +542,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -622,12 +555,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -682,12 +610,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, null);
+		setParm(parameterIndex, null);
 	}
 
 	@Override
@@ -707,12 +630,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -729,6 +647,44 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	/*
+	 * The parameter markers in sql are found once and kept. Executing again with
+	 * the same parameters sends the same text without substituting them again,
+	 * except when a parameter is a byte array or date that the caller could
+	 * change in place.
+	 */
+	@Override
+	protected String setParms(final String in) throws SQLException
+	{
+		if (boundSql != null && boundFrom == in)
+		{
+			return boundSql;
+		}
+
+		if (parms.size() == 0)
+		{
+			return in;
+		}
+
+		if (template == null || template.getSql() != in)
+		{
+			template = SqlTemplate.parse(in);
+		}
+
+		final String retval = template.bind(parms);
+		for (final Object parm : parms)
+		{
+			if (parm instanceof byte[] || parm instanceof java.util.Date)
+			{
+				return retval;
+			}
+		}
+
+		boundSql = retval;
+		boundFrom = in;
+		return retval;
+	}
+
 	@Override
 	public void setRef(final int parameterIndex, final Ref x) throws SQLException
 	{
@@ -753,12 +709,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -778,12 +729,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -796,12 +742,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
@@ -821,12 +762,7 @@ public class XGPreparedStatement extends XGStatement implements PreparedStatemen
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		while (parameterIndex - 1 > parms.size())
-		{
-			parms.add(null);
-		}
-
-		parms.add(parameterIndex - 1, x);
+		setParm(parameterIndex, x);
 	}
 
 	@Override
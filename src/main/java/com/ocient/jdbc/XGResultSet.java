@@ -1,5 +1,6 @@
 package com.ocient.jdbc;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -28,19 +29,26 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.common.base.Charsets;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
 import com.ocient.jdbc.proto.ClientWireProtocol;
 import com.ocient.jdbc.proto.ClientWireProtocol.AttachToQuery;
 import com.ocient.jdbc.proto.ClientWireProtocol.CloseResultSet;
@@ -106,10 +114,39 @@ public class XGResultSet implements ResultSet
 
 	private static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
 
-	private static int bytesToInt(final byte[] val)
+	// Limits on fetched data waiting to be read by a single result set
+	private static final int QUEUE_SLOTS = 64;
+	private static final long MAX_QUEUED_BYTES = 128L * 1024 * 1024;
+
+	// Shared by every multi-threaded fetch that decodes off the socket threads.
+	// Its tasks only decode, queueing the rows is left to the fetch threads, so a
+	// result set nobody reads can't tie up the pool's threads.
+	private static ForkJoinPool sharedDecodePool = null;
+
+	/*
+	 * Returns the decode pool, creating it with the given parallelism if this is
+	 * the first use. A ForkJoinPool can't be resized, so the first connection to
+	 * use it picks its size for the life of the JVM.
+	 */
+	private static synchronized ForkJoinPool getDecodePool(final int parallelism)
 	{
-		final int ret = java.nio.ByteBuffer.wrap(val).getInt();
-		return ret;
+		if (sharedDecodePool != null && sharedDecodePool.getParallelism() != parallelism)
+		{
+			LOGGER.log(Level.INFO, String.format("Asked for %d decode threads, the shared decode pool already has %d", parallelism, sharedDecodePool.getParallelism()));
+		}
+
+		if (sharedDecodePool == null)
+		{
+			sharedDecodePool = new ForkJoinPool(parallelism, pool ->
+			{
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("XGResultSet-decode-" + thread.getPoolIndex());
+				thread.setDaemon(true);
+				return thread;
+			}, null, false);
+		}
+
+		return sharedDecodePool;
 	}
 
 	private static byte[] intToBytes(final int val)
@@ -122,7 +159,7 @@ public class XGResultSet implements ResultSet
 		return buff;
 	}
 
-	private ArrayList<Object> rs = null;
+	private RowBatch rs = null;
 	private long firstRowIs = 0;
 	private long position = -1;
 	private boolean closed = false;
@@ -141,7 +178,19 @@ public class XGResultSet implements ResultSet
 
 	private final ArrayList<SQLWarning> warnings = new ArrayList<>();
 
-	private final LinkedBlockingQueue<ArrayList<Object>> rsQueue = new LinkedBlockingQueue<>(64);
+	// Fetched data waiting to be read. Bounded by bytes as well as by slots, so
+	// wide rows don't pile up 64 full batches
+	private final RowBatchQueue rsQueue;
+
+	// Only set with adaptiveFetchSize
+	private FetchSizer fetchSizer = null;
+
+	// The last FetchData request sent, reused until the fetch size changes. Fetch
+	// threads may race to replace it, which only costs a build.
+	private volatile Request fetchRequest = null;
+
+	// Only set when a multi-threaded fetch decodes on the shared pool
+	private ForkJoinPool decodePool = null;
 
 	private final ArrayList<Thread> fetchThreads = new ArrayList<>();
 
@@ -151,9 +200,10 @@ public class XGResultSet implements ResultSet
 	public XGResultSet(final XGConnection conn, final ArrayList<Object> rs, final XGStatement stmt)
 	{
 		this.conn = conn;
-		this.rs = rs;
+		rs.add(new DataEndMarker());
+		this.rs = new ObjectRowBatch(rs);
 		this.stmt = stmt;
-		this.rs.add(new DataEndMarker());
+		rsQueue = newRowBatchQueue(conn);
 		immutable = true;
 	}
 
@@ -162,6 +212,12 @@ public class XGResultSet implements ResultSet
 		this.conn = conn;
 		this.fetchSize = fetchSize;
 		this.stmt = stmt;
+		rsQueue = newRowBatchQueue(conn);
+		if (conn.adaptiveFetchSize)
+		{
+			fetchSizer = new FetchSizer(fetchSize, conn.fetchTargetBytes, conn.fetchTargetMillis);
+		}
+
 		requestMetaData();
 		final Thread t = new Thread(new XGResultSetThread());
 		fetchThreads.add(t);
@@ -173,6 +229,12 @@ public class XGResultSet implements ResultSet
 		this.conn = conn;
 		this.fetchSize = fetchSize;
 		this.stmt = stmt;
+		rsQueue = newRowBatchQueue(conn);
+		if (conn.adaptiveFetchSize)
+		{
+			fetchSizer = new FetchSizer(fetchSize, conn.fetchTargetBytes, conn.fetchTargetMillis);
+		}
+
 		requestMetaData();
 		mergeData(re);
 	}
@@ -182,7 +244,18 @@ public class XGResultSet implements ResultSet
 		this.conn = conn;
 		this.fetchSize = fetchSize;
 		this.stmt = stmt;
+		rsQueue = newRowBatchQueue(conn);
+		if (conn.adaptiveFetchSize)
+		{
+			fetchSizer = new FetchSizer(fetchSize, conn.fetchTargetBytes, conn.fetchTargetMillis);
+		}
+
 		requestMetaData();
+		if (numClientThreads > 1 && conn.decodeThreads > 0)
+		{
+			decodePool = getDecodePool(conn.decodeThreads);
+		}
+
 		Thread t = new Thread(new XGResultSetThread());
 		fetchThreads.add(t);
 		// Add the threads first.
@@ -243,7 +316,7 @@ public class XGResultSet implements ResultSet
 		getStandardResponse(newConn);
 	}
 
-	private int bcdLength(final int precision)
+	static int bcdLength(final int precision)
 	{
 		// translated from C++
 		int bytesNeeded = (precision + 1) / 2;
@@ -312,6 +385,8 @@ public class XGResultSet implements ResultSet
 			}
 		}
 
+		rsQueue.close();
+
 		try
 		{
 			closed = true;
@@ -324,6 +399,233 @@ public class XGResultSet implements ResultSet
 		}
 
 		stmt.setQueryCancelled(false);
+		if (conn != null)
+		{
+			conn.releaseSession();
+		}
+	}
+
+	/*
+	 * Decodes blobs of rows into a batch, with a DataEndMarker at the end if dem
+	 * is set
+	 */
+	private RowBatch decodeBlobs(final List<ByteBuffer> blobs, final boolean dem) throws Exception
+	{
+		if (conn.decodeMode != XGConnection.DecodeMode.EAGER)
+		{
+			// Keep the blobs as they came off the wire and only index the rows.
+			// Values get decoded when a getter asks for them.
+			final BlobRowBatch batch = rsQueue.newBlobBatch(this);
+			for (final ByteBuffer bb : blobs)
+			{
+				batch.addRows(bb);
+			}
+
+			if (dem)
+			{
+				batch.addDataEnd();
+			}
+
+			if (conn.decodeMode == XGConnection.DecodeMode.COLUMNAR)
+			{
+				batch.buildColumnVectors();
+			}
+
+			return batch;
+		}
+
+		final ArrayList<Object> rows = new ArrayList<>();
+		long bytes = 0;
+		for (final ByteBuffer bb : blobs)
+		{
+			bytes += bb.limit();
+			final int numRows = bb.getInt(0);
+			// Need to used int[] so we can pass an integer by reference.
+			final int[] offset = new int[1];
+			offset[0] = 4;
+			for (int i = 0; i < numRows; i++)
+			{
+				// Process this row
+				final ArrayList<Object> alo = new ArrayList<>();
+				final int rowLength = bb.getInt(offset[0]);
+				final int end = offset[0] + rowLength;
+				offset[0] += 4;
+
+				while (offset[0] < end)
+				{
+					alo.add(decodeValue(bb, offset));
+				}
+
+				rows.add(alo);
+			}
+		}
+
+		if (dem)
+		{
+			rows.add(new DataEndMarker());
+		}
+
+		return new ObjectRowBatch(rows, bytes);
+	}
+
+	/*
+	 * Decodes the type tagged value starting at offset[0] and moves offset[0]
+	 * past it
+	 */
+	Object decodeValue(final ByteBuffer bb, final int[] offset) throws Exception
+	{
+		// Get type tag
+		final byte type = bb.get(offset[0]);
+		offset[0]++;
+		if (type == 1) // INT
+		{
+			final int val = bb.getInt(offset[0]);
+			offset[0] += 4;
+			return val;
+		}
+		else if (type == 2) // LONG
+		{
+			final long val = bb.getLong(offset[0]);
+			offset[0] += 8;
+			return val;
+		}
+		else if (type == 3) // FLOAT
+		{
+			final float val = Float.intBitsToFloat(bb.getInt(offset[0]));
+			offset[0] += 4;
+			return val;
+		}
+		else if (type == 4) // DOUBLE
+		{
+			final double val = Double.longBitsToDouble(bb.getLong(offset[0]));
+			offset[0] += 8;
+			return val;
+		}
+		else if (type == 5) // STRING
+		{
+			final int stringLength = bb.getInt(offset[0]);
+			offset[0] += 4;
+			final byte[] dst = new byte[stringLength];
+			((Buffer) bb).position(offset[0]);
+			bb.get(dst);
+			offset[0] += stringLength;
+			return new String(dst, Charsets.UTF_8);
+		}
+		else if (type == 6) // Timestamp
+		{
+			final XGTimestamp val = new XGTimestamp(bb.getLong(offset[0]));
+			offset[0] += 8;
+			return val;
+		}
+		else if (type == 7) // Null
+		{
+			return null;
+		}
+		else if (type == 8) // BOOL
+		{
+			final boolean val = bb.get(offset[0]) != 0;
+			offset[0]++;
+			return val;
+		}
+		else if (type == 9) // BINARY
+		{
+			final int stringLength = bb.getInt(offset[0]);
+			offset[0] += 4;
+			final byte[] dst = new byte[stringLength];
+			((Buffer) bb).position(offset[0]);
+			bb.get(dst);
+			offset[0] += stringLength;
+			return dst;
+		}
+		else if (type == 10) // BYTE
+		{
+			final byte val = bb.get(offset[0]);
+			offset[0]++;
+			return val;
+		}
+		else if (type == 11) // SHORT
+		{
+			final short val = bb.getShort(offset[0]);
+			offset[0] += 2;
+			return val;
+		}
+		else if (type == 12) // TIME
+		{
+			final XGTime val = new XGTime(bb.getLong(offset[0]));
+			offset[0] += 8;
+			return val;
+		}
+		else if (type == 13) // DECIMAL
+		{
+			final int precision = bb.get(offset[0]);
+			final BigDecimal val = getDecimalFromBuffer(bb, offset[0]);
+			offset[0] += 2 + bcdLength(precision);
+			return val;
+		}
+		else if (type == 14) // ARRAY
+		{
+			return getArrayFromBuffer(bb, offset);
+		}
+		else if (type == 15) // UUID
+		{
+			final long high = bb.getLong(offset[0]);
+			offset[0] += 8;
+			final long low = bb.getLong(offset[0]);
+			offset[0] += 8;
+			return new UUID(high, low);
+		}
+		else if (type == 16) // ST_POINT
+		{
+			final double lon = Double.longBitsToDouble(bb.getLong(offset[0]));
+			offset[0] += 8;
+			final double lat = Double.longBitsToDouble(bb.getLong(offset[0]));
+			offset[0] += 8;
+			return new StPoint(lon, lat);
+		}
+		else if (type == 17) // IP
+		{
+			final byte[] bytes = new byte[16];
+			((Buffer) bb).position(offset[0]);
+			bb.get(bytes);
+			offset[0] += 16;
+			return InetAddress.getByAddress(bytes);
+		}
+		else if (type == 18) // IPV4
+		{
+			final byte[] bytes = new byte[4];
+			((Buffer) bb).position(offset[0]);
+			bb.get(bytes);
+			offset[0] += 4;
+			return InetAddress.getByAddress(bytes);
+		}
+		else if (type == 19) // Date
+		{
+			final XGDate val = new XGDate(bb.getLong(offset[0]));
+			offset[0] += 8;
+			return val;
+		}
+		else if (type == 20) // Timestamp w/ nanos
+		{
+			final long nanos = bb.getLong(offset[0]);
+			final long seconds = nanos / 1000000000;
+			final XGTimestamp ts = new XGTimestamp(seconds * 1000);
+			ts.setNanos((int) (nanos - seconds * 1000000000));
+			offset[0] += 8;
+			return ts;
+		}
+		else if (type == 21) // Time w/ nanos
+		{
+			final long nanos = bb.getLong(offset[0]);
+			final long seconds = nanos / 1000000000;
+			final XGTime time = new XGTime(seconds * 1000);
+			time.setNanos((int) (nanos - seconds * 1000000000));
+			offset[0] += 8;
+			return time;
+		}
+		else
+		{
+			throw SQLStates.INVALID_COLUMN_TYPE.clone();
+		}
 	}
 
 	@Override
@@ -374,22 +676,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getArray() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getArray() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -650,22 +950,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getBigDecimal() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getBigDecimal() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -756,22 +1054,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getBoolean() is throwing CALL_ON_CLOSED_OBJECT");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getBoolean() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -816,22 +1112,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getByte() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getByte() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -878,22 +1172,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getBytes() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getBytes() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -986,22 +1278,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getDate() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getDate() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -1034,22 +1324,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getDate() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getDate() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -1105,7 +1393,7 @@ public class XGResultSet implements ResultSet
 		return getDate(pos + 1, cal);
 	}
 
-	private BigDecimal getDecimalFromBuffer(final ByteBuffer bb, int offset)
+	BigDecimal getDecimalFromBuffer(final ByteBuffer bb, int offset)
 	{
 		// translated from C++
 
@@ -1176,36 +1464,32 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getDouble() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getDouble() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
-
-		if (col == null)
+		if (rs.isNull(row, columnIndex - 1))
 		{
 			wasNull = true;
 			return 0;
 		}
-		if (!(col instanceof Byte || col instanceof Integer || col instanceof Short || col instanceof Long || col instanceof Float || col instanceof Double || col instanceof BigDecimal))
+
+		if (!rs.isNumber(row, columnIndex - 1))
 		{
 			LOGGER.log(Level.WARNING, "getDouble() is throwing INVALID_DATA_TYPE_CONVERSION");
 			throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
 		}
 
-		final Number num = (Number) col;
-		return num.doubleValue();
+		return rs.getDouble(row, columnIndex - 1);
 	}
 
 	@Override
@@ -1233,14 +1517,14 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getEntireRow() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		return (ArrayList<Object>) row;
+		return (ArrayList<Object>) rs.get(row);
 	}
 
 	@Override
@@ -1280,22 +1564,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getFloat() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getFloat() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -1354,36 +1636,32 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getInt() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getInt() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
-
-		if (col == null)
+		if (rs.isNull(row, columnIndex - 1))
 		{
 			wasNull = true;
 			return 0;
 		}
-		if (!(col instanceof Byte || col instanceof Integer || col instanceof Short || col instanceof Long || col instanceof Float || col instanceof Double || col instanceof BigDecimal))
+
+		if (!rs.isNumber(row, columnIndex - 1))
 		{
 			LOGGER.log(Level.WARNING, "getInt() is throwing INVALID_DATA_TYPE_CONVERSION");
 			throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
 		}
 
-		final Number num = (Number) col;
-		return num.intValue();
+		return rs.getInt(row, columnIndex - 1);
 	}
 
 	@Override
@@ -1410,28 +1688,14 @@ public class XGResultSet implements ResultSet
 
 	private int getLength(final XGConnection newConn) throws Exception
 	{
-		final byte[] inMsg = new byte[4];
-
-		int count = 0;
-		while (count < 4)
+		try
 		{
-			try
-			{
-				final int temp = newConn.in.read(inMsg, count, 4 - count);
-				if (temp == -1)
-				{
-					throw SQLStates.UNEXPECTED_EOF.clone();
-				}
-
-				count += temp;
-			}
-			catch (final Exception e)
-			{
-				throw SQLStates.NETWORK_COMMS_ERROR.clone();
-			}
+			return newConn.frames.readLength(newConn.in);
+		}
+		catch (final Exception e)
+		{
+			throw SQLStates.NETWORK_COMMS_ERROR.clone();
 		}
-
-		return bytesToInt(inMsg);
 	}
 
 	@Override
@@ -1445,37 +1709,32 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getLong() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getLong() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
-
-		if (col == null)
+		if (rs.isNull(row, columnIndex - 1))
 		{
 			wasNull = true;
 			return 0;
 		}
 
-		if (!(col instanceof Byte || col instanceof Integer || col instanceof Short || col instanceof Long || col instanceof Float || col instanceof Double || col instanceof BigDecimal))
+		if (!rs.isNumber(row, columnIndex - 1))
 		{
 			LOGGER.log(Level.WARNING, "getLong() is throwing INVALID_DATA_TYPE_CONVERSION");
 			throw SQLStates.INVALID_DATA_TYPE_CONVERSION.clone();
 		}
 
-		final Number num = (Number) col;
-		return num.longValue();
+		return rs.getLong(row, columnIndex - 1);
 	}
 
 	@Override
@@ -1545,14 +1804,12 @@ public class XGResultSet implements ResultSet
 		{
 			final Optional<String> queryId = getQueryId();
 			stmt.passUpCancel(false);
-			// send FetchData request with fetchSize parameter
-			final ClientWireProtocol.FetchData.Builder builder = ClientWireProtocol.FetchData.newBuilder();
-			builder.setFetchSize(fetchSize);
-			final FetchData msg = builder.build();
-			final ClientWireProtocol.Request.Builder b2 = ClientWireProtocol.Request.newBuilder();
-			b2.setType(ClientWireProtocol.Request.RequestType.FETCH_DATA);
-			b2.setFetchData(msg);
-			final Request wrapper = b2.build();
+
+			if (conn.fetchPipelineDepth > 1)
+			{
+				getMoreDataPipelined(newConn, queryId, conn.fetchPipelineDepth);
+				return;
+			}
 
 			while (true)
 			{
@@ -1561,23 +1818,8 @@ public class XGResultSet implements ResultSet
 					return;
 				}
 
-				newConn.out.write(intToBytes(wrapper.getSerializedSize()));
-				wrapper.writeTo(newConn.out);
-				newConn.out.flush();
-
-				// Kind of ugly, but doesn't violate JMM (startTask() is synchronous)
-				final ClientWireProtocol.FetchDataResponse.Builder fdr = ClientWireProtocol.FetchDataResponse.newBuilder();
-
-				stmt.startTask(() ->
-				{
-					// get confirmation and data (fetchSize rows or zero size result set or
-					// terminated early with a DataEndMarker)
-					final int length = getLength(newConn);
-					final byte[] data = new byte[length];
-					readBytes(data, newConn);
-					fdr.mergeFrom(data);
-				}, queryId, getTimeoutMillis());
-
+				sendFetchData(newConn);
+				final ClientWireProtocol.FetchDataResponse.Builder fdr = readFetchData(newConn, queryId);
 				final ConfirmationResponse response = fdr.getResponse();
 				final ResponseType rType = response.getType();
 				processResponseType(rType, response);
@@ -1596,13 +1838,13 @@ public class XGResultSet implements ResultSet
 				alo.add(e);
 				try
 				{
-					rsQueue.put(alo);
+					rsQueue.put(new ObjectRowBatch(alo));
 				}
 				catch (final InterruptedException f)
 				{
 					final ArrayList<Object> alo2 = new ArrayList<>();
 					alo2.add(SQLStates.newGenericException(f));
-					rsQueue.offer(alo2);
+					rsQueue.offer(new ObjectRowBatch(alo2));
 					return;
 				}
 
@@ -1613,7 +1855,7 @@ public class XGResultSet implements ResultSet
 			{
 				final ArrayList<Object> alo = new ArrayList<>();
 				alo.add(SQLStates.newGenericException(e));
-				rsQueue.offer(alo);
+				rsQueue.offer(new ObjectRowBatch(alo));
 				return;
 			}
 
@@ -1621,13 +1863,13 @@ public class XGResultSet implements ResultSet
 			alo.add(SQLStates.newGenericException(e));
 			try
 			{
-				rsQueue.put(alo);
+				rsQueue.put(new ObjectRowBatch(alo));
 			}
 			catch (final InterruptedException f)
 			{
 				final ArrayList<Object> alo2 = new ArrayList<>();
 				alo2.add(SQLStates.newGenericException(f));
-				rsQueue.offer(alo2);
+				rsQueue.offer(new ObjectRowBatch(alo2));
 				return;
 			}
 
@@ -1635,6 +1877,127 @@ public class XGResultSet implements ResultSet
 		}
 	}
 
+	/*
+	 * Like getMoreData(), but keeps depth FetchData requests outstanding so the
+	 * server can send the next response while the previous one is in flight or
+	 * being decoded. Responses are decoded in order on a separate thread, and the
+	 * requests still outstanding after the data end marker are read off and
+	 * thrown away so the connection stays in sync.
+	 */
+	private void getMoreDataPipelined(final XGConnection newConn, final Optional<String> queryId, final int depth) throws Exception
+	{
+		final Thread fetchThread = Thread.currentThread();
+		final Object end = new Object();
+		final ArrayBlockingQueue<Object> decodeQueue = new ArrayBlockingQueue<>(depth);
+		final AtomicReference<Exception> decodeError = new AtomicReference<>();
+		final Thread decoder = new Thread(() ->
+		{
+			try
+			{
+				while (true)
+				{
+					final Object item = decodeQueue.take();
+					if (item == end)
+					{
+						return;
+					}
+
+					if (decodeError.get() != null)
+					{
+						// Keep draining so the reader never blocks
+						continue;
+					}
+
+					try
+					{
+						final ClientWireProtocol.FetchDataResponse.Builder fdr = (ClientWireProtocol.FetchDataResponse.Builder) item;
+						final ConfirmationResponse response = fdr.getResponse();
+						processResponseType(response.getType(), response);
+						mergeData(fdr.getResultSet(), fetchThread);
+					}
+					catch (final Exception e)
+					{
+						decodeError.set(e);
+					}
+				}
+			}
+			catch (final InterruptedException e)
+			{
+				decodeError.compareAndSet(null, e);
+			}
+		});
+		decoder.start();
+
+		int inFlight = 0;
+		boolean finished = false;
+		try
+		{
+			while (inFlight < depth)
+			{
+				sendFetchData(newConn);
+				inFlight++;
+			}
+
+			while (true)
+			{
+				final ClientWireProtocol.FetchDataResponse.Builder fdr = readFetchData(newConn, queryId);
+				inFlight--;
+
+				boolean last = demReceived.get() || decodeError.get() != null || fdr.getResponse().getType() == ResponseType.RESPONSE_ERROR;
+				for (final ByteString buffer : fdr.getResultSet().getBlobsList())
+				{
+					if (isBufferDem(buffer.asReadOnlyByteBuffer()))
+					{
+						last = true;
+					}
+				}
+
+				if (!last)
+				{
+					sendFetchData(newConn);
+					inFlight++;
+				}
+
+				decodeQueue.put(fdr);
+				if (last)
+				{
+					break;
+				}
+			}
+
+			while (inFlight > 0)
+			{
+				try
+				{
+					readFetchData(newConn, queryId);
+				}
+				catch (final SQLException e)
+				{
+					LOGGER.log(Level.INFO, String.format("Ignoring exception %s while draining pipelined fetches with message %s", e.toString(), e.getMessage()));
+				}
+
+				inFlight--;
+			}
+
+			decodeQueue.put(end);
+			decoder.join();
+			finished = true;
+		}
+		finally
+		{
+			if (!finished)
+			{
+				decoder.interrupt();
+				decoder.join();
+			}
+		}
+
+		if (decodeError.get() != null)
+		{
+			throw decodeError.get();
+		}
+	}
+
 	@Override
 	public Reader getNCharacterStream(final int columnIndex) throws SQLException
 	{
@@ -1688,22 +2051,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getObject() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getObject() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 		if (col == null)
 		{
 			wasNull = true;
@@ -1751,22 +2112,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getObject() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getObject() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 		if (col == null)
 		{
 			wasNull = true;
@@ -1801,22 +2160,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getObject() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getObject() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 		if (col == null)
 		{
 			wasNull = true;
@@ -1938,8 +2295,7 @@ public class XGResultSet implements ResultSet
 			return 0;
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		if (rs.isDataEnd((int) (position - firstRowIs)))
 		{
 			return 0;
 		}
@@ -1972,22 +2328,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getShort() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getShort() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -2044,11 +2398,8 @@ public class XGResultSet implements ResultSet
 
 	private void getStandardResponse(final XGConnection newConn) throws Exception
 	{
-		final int length = getLength(newConn);
-		final byte[] data = new byte[length];
-		readBytes(data, newConn);
 		final ConfirmationResponse.Builder rBuild = ConfirmationResponse.newBuilder();
-		rBuild.mergeFrom(data);
+		readMessage(newConn, getLength(newConn), rBuild, false);
 		final ResponseType rType = rBuild.getType();
 		processResponseType(rType, rBuild.build());
 	}
@@ -2077,35 +2428,26 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getString() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getString() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		Object col = alo.get(columnIndex - 1);
-
-		if (col == null)
+		if (rs.isNull(row, columnIndex - 1))
 		{
 			wasNull = true;
 			return null;
 		}
 
-		if (!(col instanceof String))
-		{
-			col = col.toString();
-		}
-
-		return (String) col;
+		return rs.getString(row, columnIndex - 1);
 	}
 
 	@Override
@@ -2136,22 +2478,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getTime() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getTime() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -2179,22 +2519,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getTime() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getTime() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -2261,22 +2599,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getTimestamp() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getTimestamp() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -2309,22 +2645,20 @@ public class XGResultSet implements ResultSet
 			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		final int row = (int) (position - firstRowIs);
+		if (rs.isDataEnd(row))
 		{
 			LOGGER.log(Level.WARNING, "getTimestamp() is throwing CURSOR_NOT_ON_ROW");
 			throw SQLStates.CURSOR_NOT_ON_ROW.clone();
 		}
 
-		final ArrayList<Object> alo = (ArrayList<Object>) row;
-
-		if (columnIndex < 1 || columnIndex > alo.size())
+		if (columnIndex < 1 || columnIndex > rs.numColumns(row))
 		{
 			LOGGER.log(Level.WARNING, "getTimestamp() is throwing COLUMN_NOT_FOUND");
 			throw SQLStates.COLUMN_NOT_FOUND.clone();
 		}
 
-		final Object col = alo.get(columnIndex - 1);
+		final Object col = rs.getObject(row, columnIndex - 1);
 
 		if (col == null)
 		{
@@ -2473,11 +2807,11 @@ public class XGResultSet implements ResultSet
 				// handle possible interrupt and get a result set from the queue
 				stmt.passUpCancel(false);
 				stmt.setRunningQueryThread(Thread.currentThread());
-				rs = rsQueue.take();
+				rs = takeBatch();
 
-				if (rs.get(0) instanceof SQLException)
+				if (rs.error() != null)
 				{
-					throw (SQLException) rs.get(0);
+					throw rs.error();
 				}
 			}
 			catch (final Exception e)
@@ -2497,8 +2831,7 @@ public class XGResultSet implements ResultSet
 			}
 		}
 
-		final Object row = rs.get(rs.size() - 1);
-		if (!(row instanceof DataEndMarker))
+		if (!rs.isDataEnd(rs.size() - 1))
 		{
 			return false;
 		}
@@ -2538,11 +2871,11 @@ public class XGResultSet implements ResultSet
 				// handle possible interrupt and get a result set from the queue
 				stmt.passUpCancel(false);
 				stmt.setRunningQueryThread(Thread.currentThread());
-				rs = rsQueue.take();
+				rs = takeBatch();
 
-				if (rs.get(0) instanceof SQLException)
+				if (rs.error() != null)
 				{
-					throw (SQLException) rs.get(0);
+					throw rs.error();
 				}
 			}
 			catch (final Exception e)
@@ -2562,8 +2895,7 @@ public class XGResultSet implements ResultSet
 			}
 		}
 
-		final Object row = rs.get(0);
-		if (row instanceof DataEndMarker)
+		if (rs.isDataEnd(0))
 		{
 			return false;
 		}
@@ -2614,11 +2946,11 @@ public class XGResultSet implements ResultSet
 				// handle possible interrupt and get a result set from the queue
 				stmt.passUpCancel(false);
 				stmt.setRunningQueryThread(Thread.currentThread());
-				rs = rsQueue.take();
+				rs = takeBatch();
 
-				if (rs.get(0) instanceof SQLException)
+				if (rs.error() != null)
 				{
-					throw (SQLException) rs.get(0);
+					throw rs.error();
 				}
 			}
 			catch (final Exception e)
@@ -2638,8 +2970,7 @@ public class XGResultSet implements ResultSet
 			}
 		}
 
-		final Object row = rs.get(0);
-		if (row instanceof DataEndMarker)
+		if (rs.isDataEnd(0))
 		{
 			return false;
 		}
@@ -2658,7 +2989,7 @@ public class XGResultSet implements ResultSet
 	public boolean isWrapperFor(final Class<?> iface) throws SQLException
 	{
 		LOGGER.log(Level.INFO, "Called isWrapperFor()");
-		return false;
+		return iface.isInstance(this);
 	}
 
 	@Override
@@ -2673,208 +3004,101 @@ public class XGResultSet implements ResultSet
 	 * merge
 	 */
 	private boolean mergeData(final ClientWireProtocol.ResultSet re) throws Exception
+	{
+		return mergeData(re, Thread.currentThread());
+	}
+
+	/*
+	 * fetchThread is the fetch thread the data came in on, which may not be the
+	 * thread doing the merge
+	 */
+	private boolean mergeData(final ClientWireProtocol.ResultSet re, final Thread fetchThread) throws Exception
 	{
 		boolean done = false;
-		boolean didProcessRows = false;
-		final List<ByteString> buffers = re.getBlobsList();
-		final ArrayList<Object> newRs = new ArrayList<>();
-		for (final ByteString buffer : buffers)
+		int numRows = 0;
+		long bytes = 0;
+		final ArrayList<ByteBuffer> blobs = new ArrayList<>();
+		for (final ByteString buffer : re.getBlobsList())
 		{
 			final ByteBuffer bb = buffer.asReadOnlyByteBuffer();
 			if (isBufferDem(bb))
 			{
-				newRs.add(new DataEndMarker());
 				demReceived.set(true);
 				done = true;
 			}
 			else
 			{
-				final int numRows = bb.getInt(0);
-				int offset = 4;
-				for (int i = 0; i < numRows; i++)
-				{
-					didProcessRows = true;
-					// Process this row
-					final ArrayList<Object> alo = new ArrayList<>();
-					final int rowLength = bb.getInt(offset);
-					final int end = offset + rowLength;
-					offset += 4;
-
-					while (offset < end)
-					{
-						// Get type tag
-						final byte type = bb.get(offset);
-						offset++;
-						if (type == 1) // INT
-						{
-							alo.add(bb.getInt(offset));
-							offset += 4;
-						}
-						else if (type == 2) // LONG
-						{
-							alo.add(bb.getLong(offset));
-							offset += 8;
-						}
-						else if (type == 3) // FLOAT
-						{
-							alo.add(Float.intBitsToFloat(bb.getInt(offset)));
-							offset += 4;
-						}
-						else if (type == 4) // DOUBLE
-						{
-							alo.add(Double.longBitsToDouble(bb.getLong(offset)));
-							offset += 8;
-						}
-						else if (type == 5) // STRING
-						{
-							final int stringLength = bb.getInt(offset);
-							offset += 4;
-							final byte[] dst = new byte[stringLength];
-							((Buffer) bb).position(offset);
-							bb.get(dst);
-							alo.add(new String(dst, Charsets.UTF_8));
-							offset += stringLength;
-						}
-						else if (type == 6) // Timestamp
-						{
-							alo.add(new XGTimestamp(bb.getLong(offset)));
-							offset += 8;
-						}
-						else if (type == 7) // Null
-						{
-							alo.add(null);
-						}
-						else if (type == 8) // BOOL
-						{
-							alo.add(bb.get(offset) != 0);
-							offset++;
-						}
-						else if (type == 9) // BINARY
-						{
-							final int stringLength = bb.getInt(offset);
-							offset += 4;
-							final byte[] dst = new byte[stringLength];
-							((Buffer) bb).position(offset);
-							bb.get(dst);
-							alo.add(dst);
-							offset += stringLength;
-						}
-						else if (type == 10) // BYTE
-						{
-							alo.add(bb.get(offset));
-							offset++;
-						}
-						else if (type == 11) // SHORT
-						{
-							alo.add(bb.getShort(offset));
-							offset += 2;
-						}
-						else if (type == 12) // TIME
-						{
-							alo.add(new XGTime(bb.getLong(offset)));
-							offset += 8;
-						}
-						else if (type == 13) // DECIMAL
-						{
-							final int precision = bb.get(offset);
-							alo.add(getDecimalFromBuffer(bb, offset));
-							offset += 2 + bcdLength(precision);
-						}
-						else if (type == 14) // ARRAY
-						{
-							// Need to used int[] so we can pass an integer by reference.
-							// Cannot use 'new Integer'. It goes by value.
-							final int[] off = new int[1];
-							off[0] = offset;
-							final XGArray array = getArrayFromBuffer(bb, off);
-							offset = off[0];
-							alo.add(array);
-						}
-						else if (type == 15) // UUID
-						{
-							final long high = bb.getLong(offset);
-							offset += 8;
-							final long low = bb.getLong(offset);
-							offset += 8;
-							alo.add(new UUID(high, low));
-						}
-						else if (type == 16) // ST_POINT
-						{
-							final double lon = Double.longBitsToDouble(bb.getLong(offset));
-							offset += 8;
-							final double lat = Double.longBitsToDouble(bb.getLong(offset));
-							offset += 8;
-							alo.add(new StPoint(lon, lat));
-						}
-						else if (type == 17) // IP
-						{
-							final byte[] bytes = new byte[16];
-							((Buffer) bb).position(offset);
-							bb.get(bytes);
-							offset += 16;
-							alo.add(InetAddress.getByAddress(bytes));
-						}
-						else if (type == 18) // IPV4
-						{
-							final byte[] bytes = new byte[4];
-							((Buffer) bb).position(offset);
-							bb.get(bytes);
-							offset += 4;
-							alo.add(InetAddress.getByAddress(bytes));
-						}
-						else if (type == 19) // Date
-						{
-							alo.add(new XGDate(bb.getLong(offset)));
-							offset += 8;
-						}
-						else if (type == 20) // Timestamp w/ nanos
-						{
-							final long nanos = bb.getLong(offset);
-							final long seconds = nanos / 1000000000;
-							final XGTimestamp ts = new XGTimestamp(seconds * 1000);
-							ts.setNanos((int) (nanos - seconds * 1000000000));
-							alo.add(ts);
-							offset += 8;
-						}
-						else if (type == 21) // Time w/ nanos
-						{
-							final long nanos = bb.getLong(offset);
-							final long seconds = nanos / 1000000000;
-							final XGTime time = new XGTime(seconds * 1000);
-							time.setNanos((int) (nanos - seconds * 1000000000));
-							alo.add(time);
-							offset += 8;
-						}
-						else
-						{
-							throw SQLStates.INVALID_COLUMN_TYPE.clone();
-						}
-					}
-
-					newRs.add(alo);
-				}
+				numRows += bb.getInt(0);
+				bytes += bb.limit();
+				blobs.add(bb);
 			}
 		}
 
-		if (didProcessRows)
+		if (numRows > 0)
 		{
 			didFirstFetch.set(true);
 		}
 
+		if (fetchSizer != null)
+		{
+			fetchSizer.fetched(numRows, bytes);
+		}
+
+		LOGGER.log(Level.INFO, String.format("Received %d rows.", numRows));
+
+		RowBatch newRs = null;
+		if (decodePool != null)
+		{
+			// The blobs decode in parallel on the pool, but they are queued here, in
+			// order, since put() can block until the rows are read
+			final ArrayList<Future<RowBatch>> decodes = new ArrayList<>(blobs.size());
+			for (final ByteBuffer bb : blobs)
+			{
+				decodes.add(decodePool.submit(() -> decodeBlobs(Collections.singletonList(bb), false)));
+			}
+
+			try
+			{
+				for (final Future<RowBatch> decode : decodes)
+				{
+					rsQueue.put(decode.get());
+				}
+			}
+			catch (final ExecutionException e)
+			{
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+			finally
+			{
+				for (final Future<RowBatch> decode : decodes)
+				{
+					decode.cancel(false);
+				}
+			}
+
+			if (done)
+			{
+				newRs = decodeBlobs(new ArrayList<>(), true);
+			}
+		}
+		else if (numRows > 0 || done)
+		{
+			newRs = decodeBlobs(blobs, done);
+		}
+
 		if (done && didFirstFetch.get())
 		{
 			// Spin and wait for other threads
 			for (final Thread t : fetchThreads)
 			{
-				if (!t.equals(Thread.currentThread()))
+				if (!t.equals(fetchThread))
 				{
 					t.join();
 				}
 			}
 		}
 
-		LOGGER.log(Level.INFO, String.format("Received %d rows.", newRs.size()));
-		if (!newRs.isEmpty())
+		if (newRs != null)
 		{
 			rsQueue.put(newRs);
 		}
@@ -2911,8 +3135,7 @@ public class XGResultSet implements ResultSet
 		{
 			if (rs != null)
 			{
-				final Object row = rs.get(rs.size() - 1);
-				if (row instanceof DataEndMarker)
+				if (rs.isDataEnd(rs.size() - 1))
 				{
 					return false;
 				}
@@ -2923,11 +3146,11 @@ public class XGResultSet implements ResultSet
 				// handle possible interrupt and get a result set from the queue
 				stmt.passUpCancel(false);
 				stmt.setRunningQueryThread(Thread.currentThread());
-				rs = rsQueue.take();
+				rs = takeBatch();
 
-				if (rs.get(0) instanceof SQLException)
+				if (rs.error() != null)
 				{
-					throw (SQLException) rs.get(0);
+					throw rs.error();
 				}
 			}
 			catch (final Exception e)
@@ -2949,8 +3172,7 @@ public class XGResultSet implements ResultSet
 			firstRowIs = position;
 		}
 
-		final Object row = rs.get((int) (position - firstRowIs));
-		if (row instanceof DataEndMarker)
+		if (rs.isDataEnd((int) (position - firstRowIs)))
 		{
 			return false;
 		}
@@ -2960,6 +3182,101 @@ public class XGResultSet implements ResultSet
 		}
 	}
 
+	private RowBatch takeBatch() throws InterruptedException
+	{
+		if (fetchSizer == null)
+		{
+			return rsQueue.take(rs);
+		}
+
+		fetchSizer.beforeTake();
+		final RowBatch retval = rsQueue.take(rs);
+		fetchSizer.afterTake(retval.size());
+		return retval;
+	}
+
+	private static RowBatchQueue newRowBatchQueue(final XGConnection conn)
+	{
+		if (conn == null)
+		{
+			return new RowBatchQueue(QUEUE_SLOTS, MAX_QUEUED_BYTES);
+		}
+
+		return new RowBatchQueue(QUEUE_SLOTS, MAX_QUEUED_BYTES, conn.bufferBudget, XGConnection.jvmBufferBudget);
+	}
+
+	/*
+	 * Returns the buffered rows that next() hasn't reached yet, waiting for the
+	 * next fetched batch if there aren't any. The cursor is left on the last row
+	 * returned, so calling next() afterwards continues with the following row.
+	 * Returns null once all rows have been read.
+	 */
+	public XGColumnBatch nextBatch() throws SQLException
+	{
+		if (closed)
+		{
+			LOGGER.log(Level.WARNING, "nextBatch() is throwing CALL_ON_CLOSED_OBJECT");
+			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
+		}
+
+		if (rs != null)
+		{
+			final boolean dem = rs.isDataEnd(rs.size() - 1);
+			final int numRows = dem ? rs.size() - 1 : rs.size();
+			final int from = (int) (position + 1 - firstRowIs);
+			if (from < numRows)
+			{
+				position = firstRowIs + numRows - 1;
+				return new XGColumnBatch(rs, from, numRows - from);
+			}
+
+			if (dem)
+			{
+				position = firstRowIs + numRows;
+				return null;
+			}
+		}
+
+		try
+		{
+			// handle possible interrupt and get a result set from the queue
+			stmt.passUpCancel(false);
+			stmt.setRunningQueryThread(Thread.currentThread());
+			rs = takeBatch();
+
+			if (rs.error() != null)
+			{
+				throw rs.error();
+			}
+		}
+		catch (final Exception e)
+		{
+			LOGGER.log(Level.WARNING, String.format("Exception %s occurred while fetching data with message %s", e.toString(), e.getMessage()));
+			if (e instanceof SQLException)
+			{
+				throw (SQLException) e;
+			}
+
+			throw SQLStates.newGenericException(e);
+		}
+		finally
+		{
+			stmt.setRunningQueryThread(null);
+			stmt.passUpCancel(true);
+		}
+
+		firstRowIs = position + 1;
+		final int numRows = rs.isDataEnd(rs.size() - 1) ? rs.size() - 1 : rs.size();
+		if (numRows == 0)
+		{
+			position = firstRowIs;
+			return null;
+		}
+
+		position = firstRowIs + numRows - 1;
+		return new XGColumnBatch(rs, 0, numRows);
+	}
+
 	@Override
 	public boolean previous() throws SQLException
 	{
@@ -2992,27 +3309,45 @@ public class XGResultSet implements ResultSet
 		}
 	}
 
-	private void readBytes(final byte[] bytes) throws Exception
+	/*
+	 * Reads one FetchDataResponse: fetchSize rows, a zero size result set, or
+	 * data terminated early with a DataEndMarker
+	 */
+	private ClientWireProtocol.FetchDataResponse.Builder readFetchData(final XGConnection newConn, final Optional<String> queryId) throws Exception
 	{
-		readBytes(bytes, conn);
+		// Kind of ugly, but doesn't violate JMM (startTask() is synchronous)
+		final ClientWireProtocol.FetchDataResponse.Builder fdr = ClientWireProtocol.FetchDataResponse.newBuilder();
+
+		stmt.startTask(() ->
+		{
+			// The blobs stay views of the frame, the row batches decode straight from it
+			readMessage(newConn, getLength(newConn), fdr, true);
+		}, queryId, getTimeoutMillis());
+
+		return fdr;
 	}
 
-	private void readBytes(final byte[] bytes, final XGConnection newConn) throws Exception
+	/*
+	 * Reads the rest of a frame into builder. With aliased, bytes fields share
+	 * the frame's memory instead of being copied out of it.
+	 */
+	private void readMessage(final XGConnection newConn, final int length, final Message.Builder builder, final boolean aliased) throws Exception
 	{
-		int count = 0;
-		final int size = bytes.length;
-		while (count < size)
+		try
 		{
-			final int temp = newConn.in.read(bytes, count, bytes.length - count);
-			if (temp == -1)
+			if (aliased)
 			{
-				throw SQLStates.UNEXPECTED_EOF.clone();
+				newConn.frames.mergeAliased(newConn.in, length, builder);
 			}
 			else
 			{
-				count += temp;
+				newConn.frames.merge(newConn.in, length, builder);
 			}
 		}
+		catch (final EOFException e)
+		{
+			throw SQLStates.UNEXPECTED_EOF.clone();
+		}
 	}
 
 	@Override
@@ -3048,10 +3383,7 @@ public class XGResultSet implements ResultSet
 
 			// receive response
 			final ClientWireProtocol.FetchMetadataResponse.Builder fmdr = ClientWireProtocol.FetchMetadataResponse.newBuilder();
-			final int length = getLength();
-			final byte[] data = new byte[length];
-			readBytes(data);
-			fmdr.mergeFrom(data);
+			readMessage(conn, getLength(), fmdr, false);
 			final ConfirmationResponse response = fmdr.getResponse();
 			final ResponseType rType = response.getType();
 			processResponseType(rType, response);
@@ -3133,6 +3465,30 @@ public class XGResultSet implements ResultSet
 		}
 	}
 
+	/*
+	 * Sends a FetchData request, sized by adaptive fetch sizing if it's on
+	 */
+	private void sendFetchData(final XGConnection newConn) throws Exception
+	{
+		final int size = fetchSizer == null ? fetchSize : fetchSizer.getFetchSize();
+		Request wrapper = fetchRequest;
+		if (wrapper == null || wrapper.getFetchData().getFetchSize() != size)
+		{
+			final ClientWireProtocol.FetchData.Builder builder = ClientWireProtocol.FetchData.newBuilder();
+			builder.setFetchSize(size);
+			final FetchData msg = builder.build();
+			final ClientWireProtocol.Request.Builder b2 = ClientWireProtocol.Request.newBuilder();
+			b2.setType(ClientWireProtocol.Request.RequestType.FETCH_DATA);
+			b2.setFetchData(msg);
+			wrapper = b2.build();
+			fetchRequest = wrapper;
+		}
+
+		newConn.out.write(intToBytes(wrapper.getSerializedSize()));
+		wrapper.writeTo(newConn.out);
+		newConn.out.flush();
+	}
+
 	private void setCaseInsensitiveCols2Pos()
 	{
 		caseInsensitiveCols2Pos = new HashMap<>();
@@ -3185,6 +3541,10 @@ public class XGResultSet implements ResultSet
 		}
 
 		fetchSize = rows;
+		if (fetchSizer != null)
+		{
+			fetchSizer.setFetchSize(rows);
+		}
 	}
 
 	public void setPos2Cols(final TreeMap<Integer, String> pos2Cols)
@@ -3195,8 +3555,14 @@ public class XGResultSet implements ResultSet
 	@Override
 	public <T> T unwrap(final Class<T> iface) throws SQLException
 	{
-		LOGGER.log(Level.WARNING, "unwrap() was called, which is not supported");
-		throw new SQLFeatureNotSupportedException();
+		LOGGER.log(Level.INFO, "Called unwrap()");
+		if (!iface.isInstance(this))
+		{
+			LOGGER.log(Level.WARNING, String.format("unwrap() is throwing INVALID_ARGUMENT for %s", iface.getName()));
+			throw SQLStates.INVALID_ARGUMENT.clone();
+		}
+
+		return iface.cast(this);
 	}
 
 	@Override
@@ -1,33 +1,28 @@
 package com.ocient.jdbc;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.GregorianCalendar;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -37,6 +32,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Preconditions;
+import com.google.protobuf.Message;
 import com.ocient.jdbc.proto.ClientWireProtocol;
 import com.ocient.jdbc.proto.ClientWireProtocol.CancelQuery;
 import com.ocient.jdbc.proto.ClientWireProtocol.CompletedQueriesRow;
@@ -57,7 +53,7 @@ import com.ocient.jdbc.proto.ClientWireProtocol.SysQueriesRow;
 import com.ocient.jdbc.proto.ClientWireProtocol.SystemWideCompletedQueries;
 import com.ocient.jdbc.proto.ClientWireProtocol.SystemWideQueries;
 
-public class XGStatement implements Statement
+public class XGStatement implements XGAsyncStatement
 {
 	/** Same as {@link Runnable} but can throw an exception */
 	protected interface ExceptionalRunnable
@@ -65,46 +61,17 @@ public class XGStatement implements Statement
 		void run() throws Exception;
 	}
 
-	class ReturnToCacheTask extends TimerTask
-	{
-		private final XGStatement stmt;
-
-		public ReturnToCacheTask(final XGStatement stmt)
-		{
-			this.stmt = stmt;
-		}
-
-		@Override
-		public void run()
-		{
-			// Reset statement
-			reset();
-
-			// Cache this
-			synchronized (cache)
-			{
-				HashSet<XGStatement> list = cache.get(conn);
-				if (list == null)
-				{
-					list = new HashSet<>();
-					list.add(stmt);
-					cache.put(conn, list);
-				}
-				else
-				{
-					list.add(stmt);
-				}
-			}
-
-			timer.cancel(); // Terminate the timer thread
-		}
-	}
-
 	public static final Logger LOGGER = Logger.getLogger("com.ocient.jdbc");
 
 	private static final int defaultFetchSize = 30000;
 
-	private static HashMap<XGConnection, HashSet<XGStatement>> cache = new HashMap<>();
+	// Most closed poolable statements kept per connection
+	static final int MAX_CACHED_STATEMENTS = 32;
+
+	// How long a closed poolable statement waits before it can be handed out again
+	static final long RETURN_TO_CACHE_SECONDS = 30;
+
+	private static final StatementCache<XGStatement> cache = new StatementCache<>(MAX_CACHED_STATEMENTS);
 
 	private static Pattern listTablesSyntax = Pattern.compile("list\\s+tables(?<verbose>\\s+verbose)?", Pattern.CASE_INSENSITIVE);
 
@@ -114,22 +81,6 @@ public class XGStatement implements Statement
 	private static Pattern describeTableSyntax = Pattern.compile("describe(\\s+table\\s+)?((" + tk("schema") + ")\\.)?(" + tk("table") + ")(?<verbose>\\s+verbose)?", Pattern.CASE_INSENSITIVE);
 	private static Pattern describeViewSyntax = Pattern.compile("describe(\\s+view\\s+)?((" + tk("schema") + ")\\.)?(" + tk("view") + ")(?<verbose>\\s+verbose)?", Pattern.CASE_INSENSITIVE);
 
-	private static String bytesToHex(final byte[] in)
-	{
-		final StringBuilder builder = new StringBuilder();
-		for (final byte b : in)
-		{
-			builder.append(String.format("%02x", b));
-		}
-		return builder.toString();
-	}
-
-	private static int bytesToInt(final byte[] val)
-	{
-		final int ret = java.nio.ByteBuffer.wrap(val).getInt();
-		return ret;
-	}
-
 	// Get a token from its generated regex according to SQL case-sensitivity rules
 	// (sensitive iff quoted).
 	// Do not call on a matcher that has not yet called matches().
@@ -156,29 +107,24 @@ public class XGStatement implements Statement
 		return buff;
 	}
 
-	public static XGStatement newXGStatement(final XGConnection conn, final boolean shouldRequestVersion) throws SQLException
+	/*
+	 * Closes the statements cached for a connection that is being closed
+	 */
+	static void evictCache(final XGConnection conn)
 	{
-		XGStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-					retval.force = false;
-					retval.oneShotForce = false;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-					retval.closed = false;
-				}
-			}
-		}
+		cache.evict(conn);
+	}
 
+	public static XGStatement newXGStatement(final XGConnection conn, final boolean shouldRequestVersion) throws SQLException
+	{
+		final XGStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = false;
+			retval.oneShotForce = false;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.closed = false;
+
 			if (shouldRequestVersion)
 			{
 				try
@@ -203,28 +149,14 @@ public class XGStatement implements Statement
 
 	public static XGStatement newXGStatement(final XGConnection conn, final boolean force, final boolean oneShotForce) throws SQLException
 	{
-		XGStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-
-					retval.force = force;
-					retval.oneShotForce = oneShotForce;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-					retval.closed = false;
-				}
-			}
-		}
-
+		final XGStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = force;
+			retval.oneShotForce = oneShotForce;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.closed = false;
+
 			try
 			{
 				if (conn.serverVersion == "")
@@ -258,28 +190,14 @@ public class XGStatement implements Statement
 			throw new SQLFeatureNotSupportedException();
 		}
 
-		XGStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-
-					retval.force = force;
-					retval.oneShotForce = oneShotForce;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-					retval.closed = false;
-				}
-			}
-		}
-
+		final XGStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = force;
+			retval.oneShotForce = oneShotForce;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.closed = false;
+
 			try
 			{
 				if (conn.serverVersion == "")
@@ -319,27 +237,14 @@ public class XGStatement implements Statement
 			throw new SQLFeatureNotSupportedException();
 		}
 
-		XGStatement retval = null;
-		synchronized (cache)
-		{
-			final HashSet<XGStatement> list = cache.get(conn);
-			if (list != null)
-			{
-				if (list.size() > 0)
-				{
-					final Iterator<XGStatement> it = list.iterator();
-					retval = it.next();
-					it.remove();
-
-					retval.force = force;
-					retval.oneShotForce = oneShotForce;
-					retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
-				}
-			}
-		}
-
+		final XGStatement retval = cache.poll(conn);
 		if (retval != null)
 		{
+			retval.force = force;
+			retval.oneShotForce = oneShotForce;
+			retval.timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
+			retval.closed = false;
+
 			try
 			{
 				if (conn.serverVersion == "")
@@ -395,6 +300,8 @@ public class XGStatement implements Statement
 	protected boolean closed = false;
 
 	protected final XGConnection conn;
+	// The connection this statement was created from, which caches it once closed
+	protected final XGConnection parentConn;
 	protected XGResultSet result;
 
 	private int updateCount = -1;
@@ -403,6 +310,9 @@ public class XGStatement implements Statement
 
 	protected ArrayList<Object> parms = new ArrayList<>();
 
+	// Statements queued by addBatch() for executeBatch()
+	private final ArrayList<String> batch = new ArrayList<>();
+
 	private int numClientThreads = 0;
 
 	// not thread safe because individual queries are single threaded
@@ -424,12 +334,11 @@ public class XGStatement implements Statement
 
 	protected boolean oneShotForce;
 
-	Timer timer;
-
 	// TODO make a builder class for xgstatement to avoid so many constructors
 	public XGStatement(final XGConnection conn, final boolean shouldRequestVersion) throws SQLException
 	{
 		this.conn = conn.copy(shouldRequestVersion);
+		parentConn = conn;
 		force = false;
 		oneShotForce = false;
 		timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
@@ -438,6 +347,7 @@ public class XGStatement implements Statement
 	public XGStatement(final XGConnection conn, final boolean force, final boolean oneShotForce) throws SQLException
 	{
 		this.conn = conn.copy();
+		parentConn = conn;
 		this.force = force;
 		this.oneShotForce = oneShotForce;
 		timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
@@ -458,6 +368,7 @@ public class XGStatement implements Statement
 			throw new SQLFeatureNotSupportedException();
 		}
 		this.conn = conn.copy();
+		parentConn = conn;
 		this.force = force;
 		this.oneShotForce = oneShotForce;
 		timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
@@ -485,6 +396,7 @@ public class XGStatement implements Statement
 		}
 
 		this.conn = conn.copy();
+		parentConn = conn;
 		this.force = force;
 		this.oneShotForce = oneShotForce;
 		timeoutMillis = conn.getTimeoutMillis(); // inherit the connections timeout
@@ -493,8 +405,14 @@ public class XGStatement implements Statement
 	@Override
 	public void addBatch(final String sql) throws SQLException
 	{
-		LOGGER.log(Level.WARNING, "addBatch() was called, which is not supported");
-		throw new SQLFeatureNotSupportedException();
+		LOGGER.log(Level.INFO, String.format("Called addBatch() with sql: %s", sql));
+		if (closed)
+		{
+			LOGGER.log(Level.WARNING, "addBatch() is throwing CALL_ON_CLOSED_OBJECT");
+			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
+		}
+
+		batch.add(sql);
 	}
 
 	/** Associates the query with this statement */
@@ -514,18 +432,20 @@ public class XGStatement implements Statement
 	{
 		LOGGER.log(Level.INFO, "Called cancel()");
 		boolean needsReconnect = false;
+		final String cancelledQueryId;
 		// TODO: Fail gracefully upon cancel
 		// See startTask
 		synchronized (this)
 		{
-			// Only statements associated to a query may be cancelled
+			// Only statements associated to a query or running a batch may be cancelled
 			// No need to cancel queries twice
-			if (queryId == null || queryCancelled.get())
+			if (queryId == null && runningQueryThread.get() == null || queryCancelled.get())
 			{
 				LOGGER.log(Level.INFO, "Cancel complete");
 				return;
 			}
 			setQueryCancelled(true);
+			cancelledQueryId = queryId;
 			if (runningQueryThread.get() != null && runningQueryThread.get() != Thread.currentThread())
 			{
 				LOGGER.log(Level.WARNING, "Calling interrupt() on the running thread due to cancel()");
@@ -544,7 +464,11 @@ public class XGStatement implements Statement
 				conn.reconnect();
 				conn.rs = null;
 
-				killQuery(queryId);
+				// Batched updates have no query to kill
+				if (cancelledQueryId != null)
+				{
+					killQuery(cancelledQueryId);
+				}
 			}
 			catch (IOException | SQLException e)
 			{
@@ -570,11 +494,8 @@ public class XGStatement implements Statement
 	@Override
 	public void clearBatch() throws SQLException
 	{
-		LOGGER.log(Level.WARNING, "clearBatch() was called, which is not supported");
-		// We don't support the batching but it is fine to not throw here as long as we
-		// still throw in
-		// executeBatch() and addBatch().
-		// throw new SQLFeatureNotSupportedException();
+		LOGGER.log(Level.INFO, "Called clearBatch()");
+		batch.clear();
 	}
 
 	@Override
@@ -607,8 +528,7 @@ public class XGStatement implements Statement
 
 			if (poolable)
 			{
-				timer = new Timer();
-				timer.schedule(new ReturnToCacheTask(this), 30 * 1000);
+				DriverScheduler.schedule(this::returnToCache, RETURN_TO_CACHE_SECONDS, TimeUnit.SECONDS);
 			}
 			else
 			{
@@ -748,11 +668,157 @@ public class XGStatement implements Statement
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	/*
+	 * Runs the statements queued by addBatch(). Updates are pipelined: a burst of
+	 * up to batchRows statements or batchBytes of requests is written before the
+	 * responses are read. The first statement of each burst goes alone since the
+	 * server may redirect it, and the rest are forced to run where it did.
+	 * Commands the driver handles itself, like SET SCHEMA, run one at a time. A
+	 * failed statement doesn't stop the batch, it is counted as EXECUTE_FAILED
+	 * and a BatchUpdateException is thrown at the end. If the connection is lost
+	 * it isn't known which statements of the burst ran, so those are left out of
+	 * the update counts.
+	 */
 	@Override
 	public int[] executeBatch() throws SQLException
 	{
-		LOGGER.log(Level.WARNING, "executeBatch() was called, which is not supported");
-		throw new SQLFeatureNotSupportedException();
+		LOGGER.log(Level.INFO, String.format("Called executeBatch() with %d statements", batch.size()));
+		if (closed)
+		{
+			LOGGER.log(Level.WARNING, "executeBatch() is throwing CALL_ON_CLOSED_OBJECT");
+			throw SQLStates.CALL_ON_CLOSED_OBJECT.clone();
+		}
+
+		passUpCancel(true);
+		clearWarnings();
+		if (conn.rs != null && !conn.rs.isClosed())
+		{
+			throw SQLStates.PREVIOUS_RESULT_SET_STILL_OPEN.clone();
+		}
+
+		final int[] counts = new int[batch.size()];
+		final ArrayList<SQLException> failures = new ArrayList<>();
+		// An array so the bursts run by startTimeout() can move it on
+		final int[] done = { 0 };
+		// Lets cancel() find the batch, updates don't have a query id
+		setRunningQueryThread(Thread.currentThread());
+		try
+		{
+			while (done[0] < batch.size())
+			{
+				passUpCancel(false);
+				final String sql = batch.get(done[0]).trim();
+				if (isDriverCommand(sql))
+				{
+					try
+					{
+						counts[done[0]] = executeUpdate(sql);
+					}
+					catch (final SQLException e)
+					{
+						counts[done[0]] = Statement.EXECUTE_FAILED;
+						failures.add(e);
+					}
+
+					done[0]++;
+					continue;
+				}
+
+				// Each burst gets the whole query timeout, like a single executeUpdate()
+				final int start = done[0];
+				startTimeout(() -> done[0] = executeBurst(start, counts, failures), Optional.empty(), timeoutMillis);
+			}
+		}
+		catch (final Exception e)
+		{
+			LOGGER.log(Level.WARNING, String.format("executeBatch() failed after %d statements with exception %s with message %s", done[0], e.toString(), e.getMessage()));
+			SQLException cause = e instanceof SQLException ? (SQLException) e : SQLStates.NETWORK_COMMS_ERROR.clone();
+			boolean cancelled = false;
+			try
+			{
+				passUpCancel(true);
+			}
+			catch (final SQLException f)
+			{
+				cause = f;
+				cancelled = true;
+				Thread.interrupted(); // cancel() interrupted us
+			}
+
+			// A timeout or cancel() has already reconnected
+			if (!cancelled && !(e instanceof SQLTimeoutException))
+			{
+				try
+				{
+					reconnect();
+				}
+				catch (final Exception f)
+				{
+				}
+			}
+
+			if (cause != e)
+			{
+				cause.initCause(e);
+			}
+
+			throw new BatchUpdateException(cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), Arrays.copyOf(counts, done[0]), cause);
+		}
+		finally
+		{
+			setRunningQueryThread(null);
+			batch.clear();
+		}
+
+		conn.releaseSession();
+		if (!failures.isEmpty())
+		{
+			final SQLException first = failures.get(0);
+			final BatchUpdateException e = new BatchUpdateException(first.getMessage(), first.getSQLState(), first.getErrorCode(), counts, first);
+			for (int i = 1; i < failures.size(); i++)
+			{
+				e.setNextException(failures.get(i));
+			}
+
+			throw e;
+		}
+
+		return counts;
+	}
+
+	/*
+	 * Runs the burst of batched updates starting at start and returns where the
+	 * next one starts, or start again if the server redirected us
+	 */
+	private int executeBurst(final int start, final int[] counts, final ArrayList<SQLException> failures) throws Exception
+	{
+		conn.attachSession();
+		writeUpdate(batch.get(start).trim(), false);
+		conn.out.flush();
+		final ClientWireProtocol.ExecuteUpdateResponse.Builder first = readUpdate();
+		if (first.getRedirect())
+		{
+			redirect(first.getRedirectHost(), first.getRedirectPort(), false);
+			return start;
+		}
+
+		recordUpdate(start, first, counts, failures);
+
+		int end = start + 1;
+		long bytes = 0;
+		while (end < batch.size() && end - start < conn.batchRows && bytes < conn.batchBytes && !isDriverCommand(batch.get(end).trim()))
+		{
+			bytes += writeUpdate(batch.get(end).trim(), true);
+			end++;
+		}
+
+		conn.out.flush();
+		for (int i = start + 1; i < end; i++)
+		{
+			recordUpdate(i, readUpdate(), counts, failures);
+		}
+
+		return end;
 	}
 
 	public ResultSet executeInlinePlan(final String plan) throws SQLException
@@ -945,6 +1011,13 @@ public class XGStatement implements Statement
 		return result;
 	}
 
+	@Override
+	public CompletableFuture<ResultSet> executeQueryAsync(final String sql)
+	{
+		LOGGER.log(Level.INFO, String.format("Called executeQueryAsync() with sql : %s", sql));
+		return runAsync(() -> executeQuery(sql));
+	}
+
 	@Override
 	public int executeUpdate(String sql) throws SQLException
 	{
@@ -1033,6 +1106,7 @@ public class XGStatement implements Statement
 		LOGGER.log(Level.INFO, String.format("Executing update: %s", sql));
 		final ClientWireProtocol.ExecuteUpdateResponse.Builder eur = (ClientWireProtocol.ExecuteUpdateResponse.Builder) sendAndReceive(sql, Request.RequestType.EXECUTE_UPDATE, 0, false,
 			Optional.empty());
+		conn.releaseSession();
 		return eur.getUpdateRowCount();
 	}
 
@@ -1057,6 +1131,13 @@ public class XGStatement implements Statement
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	@Override
+	public CompletableFuture<Integer> executeUpdateAsync(final String sql)
+	{
+		LOGGER.log(Level.INFO, String.format("Called executeUpdateAsync() with sql : %s", sql));
+		return runAsync(() -> executeUpdate(sql));
+	}
+
 	// used by CLI
 	public String explain(final String sql, final ClientWireProtocol.ExplainFormat format) throws SQLException
 	{
@@ -1269,15 +1350,13 @@ public class XGStatement implements Statement
 			final ClientWireProtocol.FetchSystemMetadataResponse.Builder br = ClientWireProtocol.FetchSystemMetadataResponse.newBuilder();
 			try
 			{
+				conn.attachSession();
 				conn.out.write(intToBytes(wrapper.getSerializedSize()));
 				wrapper.writeTo(conn.out);
 				conn.out.flush();
 
 				// get confirmation
-				final int length = getLength();
-				final byte[] data = new byte[length];
-				readBytes(data);
-				br.mergeFrom(data);
+				readMessage(getLength(), br);
 
 				final ConfirmationResponse response = br.getResponse();
 				final ResponseType rType = response.getType();
@@ -1404,20 +1483,14 @@ public class XGStatement implements Statement
 
 	private int getLength() throws Exception
 	{
-		int count = 4;
-		final byte[] data = new byte[4];
-		while (count > 0)
+		try
 		{
-			final int temp = conn.in.read(data, 4 - count, count);
-			if (temp == -1)
-			{
-				throw SQLStates.UNEXPECTED_EOF.clone();
-			}
-
-			count -= temp;
+			return conn.frames.readLength(conn.in);
+		}
+		catch (final EOFException e)
+		{
+			throw SQLStates.UNEXPECTED_EOF.clone();
 		}
-
-		return bytesToInt(data);
 	}
 
 	@Override
@@ -1618,6 +1691,16 @@ public class XGStatement implements Statement
 		return retval;
 	}
 
+	/*
+	 * Is this one of the commands executeUpdate() handles in the driver rather
+	 * than sending it to the server as is?
+	 */
+	private static boolean isDriverCommand(final String sql)
+	{
+		final String upper = sql.toUpperCase();
+		return upper.startsWith("SET ") || upper.startsWith("KILL ") || upper.startsWith("CANCEL ");
+	}
+
 	@Override
 	public boolean isClosed() throws SQLException
 	{
@@ -1664,7 +1747,7 @@ public class XGStatement implements Statement
 	public boolean isWrapperFor(final Class<?> iface) throws SQLException
 	{
 		LOGGER.log(Level.INFO, "Called isWrapperFor()");
-		return false;
+		return iface.isInstance(this);
 	}
 
 	private int killCancelQuery(final String cmd) throws SQLException
@@ -1980,6 +2063,15 @@ public class XGStatement implements Statement
 		return dbmd.getViews("", "%", "%", new String[0]);
 	}
 
+	/*
+	 * Puts a reset statement in the cache for its class, returns false if there
+	 * was no room
+	 */
+	protected boolean offerToCache()
+	{
+		return cache.offer(parentConn, this);
+	}
+
 	public void passUpCancel(final boolean clearCancelFlag) throws SQLException
 	{
 		synchronized (this)
@@ -2022,22 +2114,99 @@ public class XGStatement implements Statement
 		}
 	}
 
-	private void readBytes(final byte[] bytes) throws Exception
+	/*
+	 * Reads the response to an update written by writeUpdate()
+	 */
+	private ClientWireProtocol.ExecuteUpdateResponse.Builder readUpdate() throws Exception
+	{
+		final ClientWireProtocol.ExecuteUpdateResponse.Builder eur = ClientWireProtocol.ExecuteUpdateResponse.newBuilder();
+		readMessage(getLength(), eur);
+		return eur;
+	}
+
+	private void recordUpdate(final int index, final ClientWireProtocol.ExecuteUpdateResponse.Builder eur, final int[] counts, final ArrayList<SQLException> failures)
 	{
-		int count = 0;
-		final int size = bytes.length;
-		while (count < size)
+		try
+		{
+			processResponseType(eur.getResponse().getType(), eur.getResponse());
+			counts[index] = eur.getUpdateRowCount();
+		}
+		catch (final SQLException e)
+		{
+			counts[index] = Statement.EXECUTE_FAILED;
+			failures.add(e);
+		}
+	}
+
+	private void readMessage(final int length, final Message.Builder builder) throws Exception
+	{
+		try
 		{
-			final int temp = conn.in.read(bytes, count, bytes.length - count);
-			if (temp == -1)
+			conn.frames.merge(conn.in, length, builder);
+		}
+		catch (final EOFException e)
+		{
+			throw SQLStates.UNEXPECTED_EOF.clone();
+		}
+	}
+
+	/*
+	 * Runs call on the async pool. If the future is cancelled before call starts
+	 * it never does, if it is running its query is cancelled, and a result set it
+	 * returns anyway is closed. The cancel goes to a worker thread, so whoever
+	 * cancelled the future doesn't wait on the server.
+	 */
+	protected <T> CompletableFuture<T> runAsync(final Callable<T> call)
+	{
+		final CompletableFuture<T> retval = new CompletableFuture<>();
+		// Whichever of the task and a cancel sets started first decides whether call
+		// runs at all
+		final AtomicBoolean started = new AtomicBoolean();
+		final AtomicBoolean finished = new AtomicBoolean();
+		DriverScheduler.executeAsync(() ->
+		{
+			if (retval.isDone() || !started.compareAndSet(false, true))
 			{
-				throw SQLStates.UNEXPECTED_EOF.clone();
+				return;
 			}
-			else
+
+			try
 			{
-				count += temp;
+				final T result = call.call();
+				if (!retval.complete(result) && result instanceof AutoCloseable)
+				{
+					((AutoCloseable) result).close();
+				}
 			}
-		}
+			catch (final Exception e)
+			{
+				retval.completeExceptionally(e);
+			}
+			finally
+			{
+				finished.set(true);
+			}
+		}, conn.asyncThreads);
+
+		retval.whenComplete((result, e) ->
+		{
+			if (retval.isCancelled() && !started.compareAndSet(false, true) && !finished.get())
+			{
+				DriverScheduler.execute(() ->
+				{
+					try
+					{
+						cancel();
+					}
+					catch (final SQLException f)
+					{
+						LOGGER.log(Level.WARNING, String.format("Cancelling an async call failed with exception %s with message %s", f.toString(), f.getMessage()));
+					}
+				});
+			}
+		});
+
+		return retval;
 	}
 
 	private void reconnect() throws IOException, SQLException
@@ -2056,6 +2225,7 @@ public class XGStatement implements Statement
 	{
 		fetchSize = defaultFetchSize;
 		parms.clear();
+		batch.clear();
 		warnings.clear();
 		force = false;
 		oneShotForce = false;
@@ -2063,6 +2233,25 @@ public class XGStatement implements Statement
 		conn.reset();
 	}
 
+	/*
+	 * Resets a closed poolable statement and caches it, or really closes it if
+	 * the cache has no room
+	 */
+	protected void returnToCache()
+	{
+		reset();
+		if (!offerToCache())
+		{
+			try
+			{
+				conn.close();
+			}
+			catch (final SQLException e)
+			{
+			}
+		}
+	}
+
 	private Object sendAndReceive(String sql, final Request.RequestType requestType, final int val, final boolean isInMb, final Optional<Function<Object, Void>> additionalPropertySetter)
 		throws SQLException
 	{
@@ -2209,14 +2398,12 @@ public class XGStatement implements Statement
 			final Request wrapper = (Request) b2.getClass().getMethod("build").invoke(b2);
 			try
 			{
+				conn.attachSession();
 				conn.out.write(intToBytes(wrapper.getSerializedSize()));
 				wrapper.writeTo(conn.out);
 				conn.out.flush();
 				// get confirmation
-				final int length = getLength();
-				final byte[] data = new byte[length];
-				readBytes(data);
-				br.getClass().getMethod("mergeFrom", byte[].class).invoke(br, data);
+				readMessage(getLength(), (Message.Builder) br);
 
 				final Method getResponse = br.getClass().getMethod("getResponse");
 				final ConfirmationResponse response = (ConfirmationResponse) getResponse.invoke(br);
@@ -2435,185 +2622,14 @@ public class XGStatement implements Statement
 		return conn.setMaxTime(maxTime, reset);
 	}
 
-	private String setParms(final String in) throws SQLException
+	protected String setParms(final String in) throws SQLException
 	{
 		if (parms.size() == 0)
 		{
 			return in;
 		}
 
-		final StringBuilder out = new StringBuilder();
-		int x = 0;
-		int i = 0;
-		boolean quoted = false;
-		int quoteType = 0;
-		final int size = in.length();
-		while (i < size)
-		{
-			if (in.charAt(i) != '\'' && in.charAt(i) != '"' || in.charAt(i) == '\'' && quoteType == 2 || in.charAt(i) == '"' && quoteType == 1)
-			{
-				if (!quoted)
-				{
-					if (in.charAt(i) == '?')
-					{
-						try
-						{
-							final Object parm = parms.get(x);
-
-							// System.out.println("parm type: " + parm.getClass());
-
-							if (parm == null)
-							{
-								out.append("NULL");
-							}
-							else if (parm instanceof String)
-							{
-								out.append("'").append(((String) parm).replace("'", "''")).append("'");
-							}
-							else if (parm instanceof Timestamp)
-							{
-								final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-								final TimeZone utc = TimeZone.getTimeZone("UTC");
-								format.setTimeZone(utc);
-								final GregorianCalendar cal = new GregorianCalendar();
-								cal.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
-								format.setCalendar(cal);
-								out.append("TIMESTAMP('").append(format.format((Timestamp) parm)).append("')");
-							}
-							else if (parm instanceof Boolean)
-							{
-								// System.out.println("inside BOOLEAN set param");
-								out.append("BOOLEAN('").append(parm).append("')");
-							}
-							else if (parm instanceof byte[])
-							{
-								out.append("BINARY('0x").append(bytesToHex((byte[]) parm)).append("')");
-							}
-							else if (parm instanceof Date)
-							{
-								final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-								final TimeZone utc = TimeZone.getTimeZone("UTC");
-								format.setTimeZone(utc);
-								final GregorianCalendar cal = new GregorianCalendar();
-								cal.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
-								format.setCalendar(cal);
-								out.append("DATE('").append(format.format((Date) parm)).append("')");
-							}
-							else if (parm instanceof Time)
-							{
-								final SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
-								final TimeZone utc = TimeZone.getTimeZone("UTC");
-								format.setTimeZone(utc);
-								final GregorianCalendar cal = new GregorianCalendar();
-								cal.setGregorianChange(new java.util.Date(Long.MIN_VALUE));
-								format.setCalendar(cal);
-								out.append("TIME('").append(format.format((Time) parm)).append("')");
-							}
-							else if (parm instanceof Byte)
-							{
-								out.append("BYTE(").append(parm).append(")");
-							}
-							else if (parm instanceof Short)
-							{
-								out.append("SMALLINT(").append(parm).append(")");
-							}
-							else if (parm instanceof Integer)
-							{
-								out.append("INT(").append(parm).append(")");
-							}
-							else if (parm instanceof Float)
-							{
-								out.append("FLOAT(").append(parm).append(")");
-							}
-							else if (parm instanceof Long || parm instanceof Double)
-							{
-								out.append(parm);
-							}
-							else if (parm instanceof BigDecimal)
-							{
-								out.append("DECIMAL(").append(parm).append(", ").append(((BigDecimal) parm).precision()).append(", ").append(((BigDecimal) parm).scale()).append(")");
-							}
-							else
-							{
-								throw new SQLFeatureNotSupportedException();
-							}
-						}
-						catch (final IndexOutOfBoundsException e)
-						{
-							throw SQLStates.INVALID_PARAMETER_MARKER.clone();
-						}
-
-						x++;
-					}
-					else
-					{
-						out.append(in.charAt(i));
-					}
-				}
-				else
-				{
-					out.append(in.charAt(i));
-				}
-			}
-			else if (quoteType == 0)
-			{
-				if (in.charAt(i) == '\'' && (i + 1 == in.length() || in.charAt(i + 1) != '\''))
-				{
-					quoteType = 1;
-					quoted = true;
-					out.append('\'');
-				}
-				else if (in.charAt(i) == '"' && (i + 1 == in.length() || in.charAt(i + 1) != '"'))
-				{
-					quoteType = 2;
-					quoted = true;
-					out.append('"');
-				}
-				else
-				{
-					out.append(in.charAt(i));
-					out.append(in.charAt(i + 1));
-					i++;
-				}
-			}
-			else if (quoteType == 1)
-			{
-				if (in.charAt(i) == '\'' && (i + 1 == in.length() || in.charAt(i + 1) != '\''))
-				{
-					quoteType = 0;
-					quoted = false;
-					out.append('\'');
-				}
-				else if (in.charAt(i) == '"')
-				{
-					out.append('"');
-				}
-				else
-				{
-					out.append("''");
-					i++;
-				}
-			}
-			else if (in.charAt(i) == '"' && (i + 1 == in.length() || in.charAt(i + 1) != '"'))
-			{
-				quoteType = 0;
-				quoted = false;
-				out.append('"');
-			}
-			else if (in.charAt(i) == '\'')
-			{
-				out.append('\'');
-			}
-			else
-			{
-				out.append("\"\"");
-				i++;
-			}
-
-			i++;
-		}
-
-		return out.toString();
+		return SqlTemplate.parse(in).bind(parms);
 	}
 
 	@Override
@@ -2718,6 +2734,15 @@ public class XGStatement implements Statement
 			return;
 		}
 
+		startTimeout(task, optQueryId, timeoutMillis);
+	}
+
+	/*
+	 * Runs task like startTask() does, except that without a query id the
+	 * timeout only reconnects, which abandons whatever the task was waiting on
+	 */
+	private void startTimeout(final ExceptionalRunnable task, final Optional<String> optQueryId, final long timeoutMillis) throws Exception
+	{
 		// Check if a timeout value has been set
 		if (timeoutMillis == 0L)
 		{
@@ -2732,8 +2757,13 @@ public class XGStatement implements Statement
 		// server
 		final Thread submittingThread = Thread.currentThread();
 
+		// Set by whichever of the timeout and the caller gets there first. The
+		// scheduler's future can still be cancelled while the task is running, so it
+		// can't tell us whether the kill routine has started.
+		final AtomicBoolean fired = new AtomicBoolean(false);
+
 		// Create a task that will cancel this query if the timeout has been exceeded
-		final TimerTask killQueryTask = new TimerTask()
+		final Runnable killQueryTask = new Runnable()
 		{
 
 			@Override
@@ -2743,11 +2773,11 @@ public class XGStatement implements Statement
 				// execute the cancel routine iff it's still active
 				final long timeoutSec = timeoutMillis / 1000;
 
-				LOGGER.log(Level.INFO, String.format("Timeout invoked after %s seconds. Canceling query %s", timeoutSec, optQueryId.get()));
+				LOGGER.log(Level.INFO, String.format("Timeout invoked after %s seconds. Canceling query %s", timeoutSec, optQueryId.orElse("")));
 
-				// send the kill query message on the timeout thread. This is okay because we
-				// don't
-				// share Timers across connection threads.
+				// send the kill query message on a worker thread. It reconnects and waits
+				// on the server, which would hold up every other timeout if it ran on the
+				// shared scheduler thread.
 				Exception suppressed = null;
 				try
 				{
@@ -2766,7 +2796,10 @@ public class XGStatement implements Statement
 					conn.rs = null;
 
 					// send the kill query message to the server
-					XGStatement.this.killQuery(optQueryId.get());
+					if (optQueryId.isPresent())
+					{
+						XGStatement.this.killQuery(optQueryId.get());
+					}
 				}
 				catch (final Exception e)
 				{
@@ -2787,7 +2820,13 @@ public class XGStatement implements Statement
 			}
 		};
 
-		conn.addTimeout(killQueryTask, timeoutMillis);
+		final ScheduledFuture<?> timeout = conn.addTimeout(() ->
+		{
+			if (fired.compareAndSet(false, true))
+			{
+				DriverScheduler.execute(killQueryTask);
+			}
+		}, timeoutMillis);
 
 		try
 		{
@@ -2797,7 +2836,7 @@ public class XGStatement implements Statement
 		finally
 		{
 			// Our task completed or we were interrupted
-			if (!killQueryTask.cancel())
+			if (!fired.compareAndSet(false, true))
 			{
 				// this is ugly, but we're within the context of a synchronous framework so
 				// whatever
@@ -2807,18 +2846,43 @@ public class XGStatement implements Statement
 			}
 			else
 			{
-				// Removes our canceled task (any those from any other connection) from the
-				// timer task queue
-				conn.purgeTimeoutTasks();
+				// Takes our task off the scheduler's queue
+				timeout.cancel(false);
 			}
 		}
 	}
 
+	/*
+	 * Writes an EXECUTE_UPDATE request without flushing or waiting for the
+	 * response, and returns the number of bytes written. A forced update is
+	 * never redirected.
+	 */
+	private int writeUpdate(final String sql, final boolean forced) throws IOException
+	{
+		final ExecuteUpdate.Builder eu = ExecuteUpdate.newBuilder();
+		eu.setSql(sql);
+		eu.setForce(forced || force || oneShotForce);
+		oneShotForce = false;
+		final Request.Builder b2 = Request.newBuilder();
+		b2.setType(Request.RequestType.EXECUTE_UPDATE);
+		b2.setExecuteUpdate(eu.build());
+		final Request wrapper = b2.build();
+		conn.out.write(intToBytes(wrapper.getSerializedSize()));
+		wrapper.writeTo(conn.out);
+		return wrapper.getSerializedSize() + 4;
+	}
+
 	@Override
 	public <T> T unwrap(final Class<T> iface) throws SQLException
 	{
-		LOGGER.log(Level.WARNING, "unwrap() was called, which is not supported");
-		throw new SQLFeatureNotSupportedException();
+		LOGGER.log(Level.INFO, "Called unwrap()");
+		if (!iface.isInstance(this))
+		{
+			LOGGER.log(Level.WARNING, String.format("unwrap() is throwing INVALID_ARGUMENT for %s", iface.getName()));
+			throw SQLStates.INVALID_ARGUMENT.clone();
+		}
+
+		return iface.cast(this);
 	}
 	/*
 	 * ! New functions which have been moved from the CLI into the driver. TODO:
@@ -0,0 +1,97 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class BufferBudgetTest {
+
+  // Acquires on another thread, counting down acquired once it has
+  private static Thread acquire(
+      final BufferBudget budget,
+      final long bytes,
+      final AtomicBoolean canWait,
+      final CountDownLatch acquired) {
+    final Thread t =
+        new Thread(
+            () -> {
+              try {
+                budget.acquire(bytes, canWait::get);
+                acquired.countDown();
+              } catch (final InterruptedException e) {
+                // The test gave up
+              }
+            });
+    t.setDaemon(true);
+    t.start();
+    return t;
+  }
+
+  @Test
+  public void noLimit() throws Exception {
+    final BufferBudget budget = new BufferBudget(0);
+    budget.acquire(1L << 40, () -> true);
+    budget.acquire(1L << 40, () -> true);
+    assertEquals(1L << 41, budget.used());
+    budget.release(1L << 41);
+    assertEquals(0, budget.used());
+  }
+
+  @Test
+  public void waitsForRelease() throws Exception {
+    final BufferBudget budget = new BufferBudget(100);
+    budget.acquire(80, () -> true);
+    final CountDownLatch acquired = new CountDownLatch(1);
+    acquire(budget, 30, new AtomicBoolean(true), acquired);
+    assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+    budget.release(80);
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    assertEquals(30, budget.used());
+  }
+
+  @Test
+  public void oversizedGoesThroughWhenEmpty() throws Exception {
+    final BufferBudget budget = new BufferBudget(100);
+    budget.acquire(1000, () -> true);
+    assertEquals(1000, budget.used());
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    acquire(budget, 1000, new AtomicBoolean(true), acquired);
+    assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+    budget.release(1000);
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void wakeUpRechecksCanWait() throws Exception {
+    final BufferBudget budget = new BufferBudget(100);
+    budget.acquire(100, () -> true);
+    final AtomicBoolean canWait = new AtomicBoolean(true);
+    final CountDownLatch acquired = new CountDownLatch(1);
+    acquire(budget, 50, canWait, acquired);
+    assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+    canWait.set(false);
+    budget.wakeUp();
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    assertEquals(150, budget.used());
+  }
+
+  @Test
+  public void raisingTheLimitWakesWaiters() throws Exception {
+    final BufferBudget budget = new BufferBudget(100);
+    budget.acquire(100, () -> true);
+    final CountDownLatch acquired = new CountDownLatch(1);
+    acquire(budget, 50, new AtomicBoolean(true), acquired);
+    assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+    budget.setLimit(200);
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+  }
+}
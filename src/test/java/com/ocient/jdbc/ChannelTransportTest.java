@@ -0,0 +1,123 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.SocketChannel;
+import org.junit.Test;
+
+public class ChannelTransportTest {
+
+  @Test
+  public void readHonoursSoTimeout() throws Exception {
+    try (final ServerSocket server = new ServerSocket(0)) {
+      final SocketChannel channel =
+          ChannelTransport.open("127.0.0.1", server.getLocalPort(), 5000, 64 * 1024);
+      try (final Socket peer = server.accept();
+          final InputStream in = new ChannelTransport.ChannelInputStream(channel)) {
+        channel.socket().setSoTimeout(200);
+        final long start = System.nanoTime();
+        try {
+          in.read(new byte[4]);
+          fail("read returned from a silent peer");
+        } catch (final SocketTimeoutException e) {
+          final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+          assertTrue(elapsedMillis >= 190);
+          assertTrue(elapsedMillis < 5000);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void closeWakesReader() throws Exception {
+    try (final ServerSocket server = new ServerSocket(0)) {
+      final SocketChannel channel =
+          ChannelTransport.open("127.0.0.1", server.getLocalPort(), 5000, 64 * 1024);
+      try (final Socket peer = server.accept()) {
+        final InputStream in = new ChannelTransport.ChannelInputStream(channel);
+        final Thread closer =
+            new Thread(
+                () -> {
+                  try {
+                    Thread.sleep(200);
+                    in.close();
+                  } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                });
+        closer.start();
+        final long start = System.nanoTime();
+        try {
+          in.read(new byte[4]);
+          fail("read returned from a silent peer");
+        } catch (final AsynchronousCloseException e) {
+          assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+        }
+
+        closer.join();
+        assertFalse(channel.isOpen());
+      }
+    }
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    try (final ServerSocket server = new ServerSocket(0)) {
+      final SocketChannel channel =
+          ChannelTransport.open("127.0.0.1", server.getLocalPort(), 5000, 64 * 1024);
+      try (final Socket peer = server.accept();
+          final InputStream in = new ChannelTransport.ChannelInputStream(channel);
+          final OutputStream out = new ChannelTransport.ChannelOutputStream(channel)) {
+        channel.socket().setSoTimeout(5000);
+        // Larger than the socket buffers, so the writer has to wait for the peer
+        final byte[] sent = new byte[4 * 1024 * 1024];
+        for (int i = 0; i < sent.length; i++) {
+          sent[i] = (byte) i;
+        }
+
+        final Thread echo =
+            new Thread(
+                () -> {
+                  try {
+                    final byte[] buf = new byte[64 * 1024];
+                    int n;
+                    while ((n = peer.getInputStream().read(buf)) > 0) {
+                      peer.getOutputStream().write(buf, 0, n);
+                    }
+                  } catch (final Exception e) {
+                    // The channel closed
+                  }
+                });
+        echo.start();
+
+        final byte[] received = new byte[sent.length];
+        final Thread reader =
+            new Thread(
+                () -> {
+                  try {
+                    int off = 0;
+                    while (off < received.length) {
+                      off += in.read(received, off, received.length - off);
+                    }
+                  } catch (final Exception e) {
+                    throw new RuntimeException(e);
+                  }
+                });
+        reader.start();
+        out.write(sent);
+        out.flush();
+        reader.join(10000);
+        assertArrayEquals(sent, received);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ConnectRaceTest {
+
+  private final LinkedBlockingQueue<String> discarded = new LinkedBlockingQueue<>();
+
+  private static ConnectRace.Attempt<String> after(final long millis, final String value) {
+    return () -> {
+      Thread.sleep(millis);
+      return value;
+    };
+  }
+
+  private static ConnectRace.Attempt<String> failing(final String message) {
+    return () -> {
+      throw new IOException(message);
+    };
+  }
+
+  @Test
+  public void slowAttemptLosesAndIsDiscarded() throws Exception {
+    final String winner =
+        ConnectRace.first(Arrays.asList(after(500, "slow"), after(0, "fast")), 50, discarded::add);
+    assertEquals("fast", winner);
+    assertEquals("slow", discarded.poll(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void failureStartsTheNextAttemptRightAway() throws Exception {
+    final long start = System.nanoTime();
+    final String winner =
+        ConnectRace.first(Arrays.asList(failing("refused"), after(0, "b")), 10000, discarded::add);
+    assertEquals("b", winner);
+    assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+    assertTrue(discarded.isEmpty());
+  }
+
+  @Test
+  public void allFailingThrowsTheLastError() throws Exception {
+    try {
+      ConnectRace.first(Arrays.asList(failing("first"), failing("last")), 10, discarded::add);
+      fail("a race with no successes returned");
+    } catch (final IOException e) {
+      assertEquals("last", e.getMessage());
+    }
+  }
+
+  @Test
+  public void laterAttemptsDontStartOnceDecided() throws Exception {
+    final AtomicInteger started = new AtomicInteger();
+    final ConnectRace.Attempt<String> counted =
+        () -> {
+          started.incrementAndGet();
+          return "late";
+        };
+    assertEquals("a", ConnectRace.first(Arrays.asList(after(0, "a"), counted), 2000, discarded::add));
+    Thread.sleep(100);
+    assertEquals(0, started.get());
+  }
+
+  @Test
+  public void simultaneousWinnersKeepOneDiscardTheRest() throws Exception {
+    for (int round = 0; round < 50; round++) {
+      final CountDownLatch go = new CountDownLatch(3);
+      final List<ConnectRace.Attempt<String>> attempts = new ArrayList<>();
+      for (final String name : new String[] {"a", "b", "c"}) {
+        attempts.add(
+            () -> {
+              go.countDown();
+              go.await();
+              return name;
+            });
+      }
+
+      final String winner = ConnectRace.first(attempts, 1, discarded::add);
+      final List<String> all = new ArrayList<>(Collections.singletonList(winner));
+      for (int i = 0; i < 2; i++) {
+        final String loser = discarded.poll(5, TimeUnit.SECONDS);
+        assertTrue(loser != null && !loser.equals(winner));
+        all.add(loser);
+      }
+
+      assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), new HashSet<>(all));
+      assertNull(discarded.poll(50, TimeUnit.MILLISECONDS));
+    }
+  }
+}
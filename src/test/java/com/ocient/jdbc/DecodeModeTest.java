@@ -0,0 +1,442 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DecodeModeTest {
+
+  // Every wire type that can be a value, everything but NULL and ARRAY
+  private static final int[] VALUE_TYPES = {
+    1, 2, 3, 4, 5, 6, 8, 9, 10, 11, 12, 13, 15, 16, 17, 18, 19, 20, 21
+  };
+
+  private static final int ROWS_PER_BLOB = 20;
+  private static final int BLOBS = 3;
+
+  private interface Getter {
+    Object get(int columnIndex) throws SQLException;
+  }
+
+  private interface ColumnGetter {
+    Object get(XGColumnBatch batch, int columnIndex) throws SQLException;
+  }
+
+  private final Logger logger = Logger.getLogger("com.ocient.jdbc");
+  private Level level;
+  private XGConnection conn;
+  private XGStatement stmt;
+
+  @Before
+  public void setUp() throws Exception {
+    // Every failed conversion logs a warning, and most getters fail on most types
+    level = logger.getLevel();
+    logger.setLevel(Level.OFF);
+    conn =
+        new XGConnection(
+            "user",
+            "pwd",
+            "127.0.0.1",
+            4050,
+            "url",
+            "db",
+            "1.0.0",
+            "false",
+            XGConnection.Tls.OFF,
+            new Properties()) {
+          @Override
+          public XGConnection copy() {
+            return this;
+          }
+        };
+    stmt = new XGStatement(conn, false, false);
+  }
+
+  @After
+  public void tearDown() {
+    logger.setLevel(level);
+  }
+
+  private static void writeValue(final DataOutputStream out, final int type, final Random random)
+      throws IOException {
+    out.writeByte(type);
+    switch (type) {
+      case 1: // INT
+        out.writeInt(random.nextInt());
+        break;
+      case 2: // LONG
+        out.writeLong(random.nextLong());
+        break;
+      case 3: // FLOAT
+        out.writeFloat((random.nextFloat() - 0.5f) * random.nextInt(1_000_000));
+        break;
+      case 4: // DOUBLE
+        out.writeDouble((random.nextDouble() - 0.5) * random.nextLong());
+        break;
+      case 5: // STRING
+      case 9: // BINARY
+        final byte[] bytes;
+        if (type == 5) {
+          final StringBuilder s = new StringBuilder();
+          for (int i = random.nextInt(6); i > 0; i--) {
+            s.appendCodePoint(new int[] {'a', '7', ' ', '\'', 0xe9, 0x20ac, 0x1f600}[random.nextInt(7)]);
+          }
+          bytes = s.toString().getBytes(StandardCharsets.UTF_8);
+        } else {
+          bytes = new byte[random.nextInt(6)];
+          random.nextBytes(bytes);
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        break;
+      case 6: // Timestamp
+      case 19: // Date
+        out.writeLong((long) ((random.nextDouble() - 0.5) * 8e12));
+        break;
+      case 8: // BOOL, anything but 0 is true
+        out.writeByte(random.nextInt(3));
+        break;
+      case 10: // BYTE
+        out.writeByte(random.nextInt());
+        break;
+      case 11: // SHORT
+        out.writeShort(random.nextInt());
+        break;
+      case 12: // TIME
+        out.writeLong(random.nextInt(86_400_000));
+        break;
+      case 13: // DECIMAL
+        writeDecimal(out, random);
+        break;
+      case 15: // UUID
+      case 16: // ST_POINT
+        out.writeLong(random.nextLong());
+        out.writeLong(random.nextLong());
+        break;
+      case 17: // IP
+      case 18: // IPV4
+        final byte[] address = new byte[type == 17 ? 16 : 4];
+        random.nextBytes(address);
+        out.write(address);
+        break;
+      case 20: // Timestamp w/ nanos
+        out.writeLong((random.nextLong() >>> 1) % 4_000_000_000_000_000_000L);
+        break;
+      case 21: // Time w/ nanos
+        out.writeLong((random.nextLong() >>> 1) % 86_400_000_000_000L);
+        break;
+      default:
+        throw new IllegalArgumentException("no value type " + type);
+    }
+  }
+
+  // Packed BCD, a filler nibble first if the precision is even and the sign last
+  private static void writeDecimal(final DataOutputStream out, final Random random)
+      throws IOException {
+    final int precision = 1 + random.nextInt(30);
+    out.writeByte(precision);
+    out.writeByte(random.nextInt(precision + 1));
+    final List<Integer> nibbles = new ArrayList<>();
+    if (precision % 2 == 0) {
+      nibbles.add(0);
+    }
+    for (int i = 0; i < precision; i++) {
+      nibbles.add(random.nextInt(10));
+    }
+    nibbles.add(random.nextBoolean() ? 0x0c : 0x0d);
+    for (int i = 0; i < nibbles.size(); i += 2) {
+      out.writeByte(nibbles.get(i) << 4 | nibbles.get(i + 1));
+    }
+  }
+
+  private static void writeArray(
+      final DataOutputStream out, final int levels, final int elementType, final Random random)
+      throws IOException {
+    for (int i = 0; i < levels; i++) {
+      out.writeByte(14);
+    }
+    out.writeByte(elementType);
+    writeArrayBody(out, levels, elementType, random);
+  }
+
+  private static void writeArrayBody(
+      final DataOutputStream out, final int levels, final int elementType, final Random random)
+      throws IOException {
+    if (random.nextInt(8) == 0) {
+      // Entirely null
+      out.writeInt(0);
+      out.writeByte(1);
+      return;
+    }
+
+    final int numElements = random.nextInt(4);
+    out.writeInt(numElements);
+    out.writeByte(0);
+    for (int i = 0; i < numElements; i++) {
+      if (levels > 1) {
+        writeArrayBody(out, levels - 1, elementType, random);
+      } else if (random.nextInt(5) == 0) {
+        out.writeByte(7);
+      } else {
+        writeValue(out, elementType, random);
+      }
+    }
+  }
+
+  private static int randomValueType(final Random random) {
+    return VALUE_TYPES[random.nextInt(VALUE_TYPES.length)];
+  }
+
+  /*
+   * One column per value type with some nulls, then columns that are always
+   * null, mix numeric types, mix every type, and hold arrays
+   */
+  private static List<ByteBuffer> blobs(final long seed) throws IOException {
+    final Random random = new Random(seed);
+    final int[] arrayLevels = {1, 1, 2, 3};
+    final int[] arrayTypes = new int[arrayLevels.length];
+    for (int i = 0; i < arrayTypes.length; i++) {
+      arrayTypes[i] = randomValueType(random);
+    }
+
+    final List<ByteBuffer> blobs = new ArrayList<>();
+    for (int b = 0; b < BLOBS; b++) {
+      final ByteArrayOutputStream blob = new ByteArrayOutputStream();
+      final DataOutputStream out = new DataOutputStream(blob);
+      out.writeInt(ROWS_PER_BLOB);
+      for (int r = 0; r < ROWS_PER_BLOB; r++) {
+        final ByteArrayOutputStream row = new ByteArrayOutputStream();
+        final DataOutputStream cols = new DataOutputStream(row);
+        for (final int type : VALUE_TYPES) {
+          if (random.nextInt(5) == 0) {
+            cols.writeByte(7);
+          } else {
+            writeValue(cols, type, random);
+          }
+        }
+
+        cols.writeByte(7);
+        writeValue(cols, new int[] {1, 2, 4, 13}[random.nextInt(4)], random);
+        if (random.nextInt(6) == 0) {
+          writeArray(cols, 1 + random.nextInt(2), randomValueType(random), random);
+        } else {
+          writeValue(cols, randomValueType(random), random);
+        }
+
+        for (int i = 0; i < arrayLevels.length; i++) {
+          if (random.nextInt(5) == 0) {
+            cols.writeByte(7);
+          } else {
+            writeArray(cols, arrayLevels[i], arrayTypes[i], random);
+          }
+        }
+
+        // The length includes itself
+        out.writeInt(4 + row.size());
+        row.writeTo(out);
+      }
+
+      // Fetched blobs are read only views of the frame
+      blobs.add(ByteBuffer.wrap(blob.toByteArray()).asReadOnlyBuffer());
+    }
+
+    return blobs;
+  }
+
+  private RowBatch decode(final XGConnection.DecodeMode mode, final XGResultSet rs, final long seed)
+      throws Exception {
+    conn.decodeMode = mode;
+    final Method decodeBlobs =
+        XGResultSet.class.getDeclaredMethod("decodeBlobs", List.class, boolean.class);
+    decodeBlobs.setAccessible(true);
+    try {
+      return (RowBatch) decodeBlobs.invoke(rs, blobs(seed), true);
+    } catch (final InvocationTargetException e) {
+      throw (Exception) e.getCause();
+    }
+  }
+
+  private static String describe(final Object value) throws SQLException {
+    if (value == null) {
+      return "null";
+    }
+
+    if (value instanceof byte[]) {
+      return Arrays.toString((byte[]) value);
+    }
+
+    if (value instanceof Array) {
+      return "Array:" + describe(((Array) value).getArray());
+    }
+
+    if (value instanceof Object[]) {
+      final StringBuilder s = new StringBuilder("[");
+      for (final Object element : (Object[]) value) {
+        s.append(describe(element)).append(", ");
+      }
+      return s.append(']').toString();
+    }
+
+    if (value instanceof int[]) {
+      return Arrays.toString((int[]) value);
+    }
+
+    if (value instanceof long[]) {
+      return Arrays.toString((long[]) value);
+    }
+
+    if (value instanceof double[]) {
+      return Arrays.toString((double[]) value);
+    }
+
+    // byte[].toString() is an identity hash, so getString() on BINARY differs
+    // from call to call
+    return (value.getClass().getSimpleName() + ":" + value).replaceAll("\\[B@[0-9a-f]+", "[B@");
+  }
+
+  private static String call(final Getter getter, final int columnIndex) {
+    try {
+      return describe(getter.get(columnIndex));
+    } catch (final SQLException e) {
+      return "SQLException:" + e.getSQLState();
+    } catch (final Exception e) {
+      return e.getClass().getSimpleName();
+    }
+  }
+
+  /*
+   * Reads every column of every row with every getter, through the result set
+   * the way an application would
+   */
+  private List<String> readResultSet(final XGConnection.DecodeMode mode, final long seed)
+      throws Exception {
+    final XGResultSet rs = new XGResultSet(conn, new ArrayList<>(), stmt);
+    final Field rows = XGResultSet.class.getDeclaredField("rs");
+    rows.setAccessible(true);
+    rows.set(rs, decode(mode, rs, seed));
+
+    final Getter[] getters = {
+      rs::getObject,
+      rs::getString,
+      rs::getBoolean,
+      rs::getByte,
+      rs::getShort,
+      rs::getInt,
+      rs::getLong,
+      rs::getFloat,
+      rs::getDouble,
+      rs::getBigDecimal,
+      rs::getBytes,
+      rs::getDate,
+      rs::getTime,
+      rs::getTimestamp,
+      rs::getArray
+    };
+
+    final List<String> out = new ArrayList<>();
+    while (rs.next()) {
+      final int numColumns = VALUE_TYPES.length + 3 + 4;
+      for (int col = 1; col <= numColumns + 1; col++) {
+        for (int g = 0; g < getters.length; g++) {
+          out.add(col + "/" + g + " " + call(getters[g], col) + " " + rs.wasNull());
+        }
+      }
+    }
+
+    return out;
+  }
+
+  /*
+   * Reads every column through XGColumnBatch, from the first row and from the
+   * middle of the batch
+   */
+  private List<String> readColumnBatch(final XGConnection.DecodeMode mode, final long seed)
+      throws Exception {
+    final RowBatch rows = decode(mode, new XGResultSet(conn, new ArrayList<>(), stmt), seed);
+    final int numRows = rows.size() - 1;
+    final ColumnGetter[] columnGetters = {
+      XGColumnBatch::getIntColumn, XGColumnBatch::getLongColumn, XGColumnBatch::getDoubleColumn
+    };
+
+    final List<String> out = new ArrayList<>();
+    for (final int from : new int[] {0, ROWS_PER_BLOB / 2 + 1}) {
+      final XGColumnBatch batch = new XGColumnBatch(rows, from, numRows - from);
+      out.add(batch.getColumnCount() + " columns, " + batch.getRowCount() + " rows");
+      for (int col = 1; col <= batch.getColumnCount() + 1; col++) {
+        final int c = col;
+        for (int g = 0; g < columnGetters.length; g++) {
+          final int getter = g;
+          out.add(col + "/" + g + " " + call(i -> columnGetters[getter].get(batch, i), col));
+        }
+
+        for (int row = -1; row <= batch.getRowCount(); row++) {
+          final int r = row;
+          out.add(row + "/" + col + " " + call(i -> batch.getObject(r, i), c));
+          out.add(row + "/" + col + " " + call(i -> batch.getString(r, i), c));
+          out.add(row + "/" + col + " " + call(i -> batch.isNull(r, i), c));
+        }
+      }
+    }
+
+    return out;
+  }
+
+  private static void assertSame(final List<String> expected, final List<String> actual, final String what) {
+    assertEquals(what, expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(what, expected.get(i), actual.get(i));
+    }
+  }
+
+  @Test
+  public void resultSetGettersAgree() throws Exception {
+    for (long seed = 0; seed < 20; seed++) {
+      final List<String> eager = readResultSet(XGConnection.DecodeMode.EAGER, seed);
+      assertSame(eager, readResultSet(XGConnection.DecodeMode.LAZY, seed), "LAZY seed " + seed);
+      assertSame(eager, readResultSet(XGConnection.DecodeMode.COLUMNAR, seed), "COLUMNAR seed " + seed);
+    }
+  }
+
+  @Test
+  public void columnBatchesAgree() throws Exception {
+    for (long seed = 0; seed < 20; seed++) {
+      final List<String> eager = readColumnBatch(XGConnection.DecodeMode.EAGER, seed);
+      assertSame(eager, readColumnBatch(XGConnection.DecodeMode.LAZY, seed), "LAZY seed " + seed);
+      assertSame(eager, readColumnBatch(XGConnection.DecodeMode.COLUMNAR, seed), "COLUMNAR seed " + seed);
+    }
+  }
+
+  @Test
+  public void columnarBuildsVectors() throws Exception {
+    final RowBatch rows =
+        decode(
+            XGConnection.DecodeMode.COLUMNAR,
+            new XGResultSet(conn, new ArrayList<>(), stmt),
+            1);
+    // Every fixed width value type gets one, the rest and the mixed columns don't
+    for (int col = 0; col < VALUE_TYPES.length + 3 + 4; col++) {
+      final boolean fixed =
+          col < VALUE_TYPES.length && ColumnVector.isFixedWidth((byte) VALUE_TYPES[col]);
+      assertEquals("column " + col, fixed, rows.vector(col) != null);
+    }
+  }
+}
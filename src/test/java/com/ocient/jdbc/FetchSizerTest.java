@@ -0,0 +1,47 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FetchSizerTest {
+
+  // Feeds responses of rows that are each targetBytes wide, which asks for 1 row
+  private static void shrink(final FetchSizer sizer) {
+    for (int i = 0; i < 40; i++) {
+      sizer.fetched(10, 10 * 1000);
+    }
+  }
+
+  @Test
+  public void shrinksToMin() {
+    final FetchSizer sizer = new FetchSizer(30000, 1000, 0);
+    sizer.fetched(10, 10 * 1000);
+    assertEquals(15000, sizer.getFetchSize());
+    shrink(sizer);
+    assertEquals(FetchSizer.MIN, sizer.getFetchSize());
+  }
+
+  @Test
+  public void smallerFetchSizeIsTheFloor() {
+    final FetchSizer sizer = new FetchSizer(100, 1000, 0);
+    assertEquals(100, sizer.getFetchSize());
+    shrink(sizer);
+    assertEquals(100, sizer.getFetchSize());
+
+    sizer.setFetchSize(10);
+    assertEquals(10, sizer.getFetchSize());
+    shrink(sizer);
+    assertEquals(10, sizer.getFetchSize());
+  }
+
+  @Test
+  public void growsToMax() {
+    final FetchSizer sizer = new FetchSizer(500, 1L << 40, 0);
+    for (int i = 0; i < 40; i++) {
+      sizer.fetched(10, 10);
+    }
+
+    assertEquals(FetchSizer.MAX, sizer.getFetchSize());
+  }
+}
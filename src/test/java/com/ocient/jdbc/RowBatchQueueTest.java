@@ -0,0 +1,104 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import org.junit.Test;
+
+public class RowBatchQueueTest {
+
+  // A lazy batch holding an empty blob of the given wire size
+  private static BlobRowBatch blobBatch(final RowBatchQueue queue, final int bytes)
+      throws Exception {
+    final BlobRowBatch batch = queue.newBlobBatch(null);
+    final ByteBuffer bb = ByteBuffer.allocate(bytes);
+    bb.putInt(0, 0);
+    batch.addRows(bb);
+    return batch;
+  }
+
+  @Test
+  public void takeReleasesRecycledBatches() throws Exception {
+    final BufferBudget conn = new BufferBudget(0);
+    final BufferBudget jvm = new BufferBudget(0);
+    final RowBatchQueue queue = new RowBatchQueue(4, 1 << 20, conn, jvm);
+
+    queue.put(blobBatch(queue, 100));
+    queue.put(blobBatch(queue, 200));
+    assertEquals(300, conn.used());
+
+    RowBatch current = queue.take(null);
+    assertEquals(100, current.bytes());
+    // The batch being read stays charged
+    assertEquals(300, conn.used());
+
+    queue.put(blobBatch(queue, 300));
+    current = queue.take(current);
+    assertEquals(200, current.bytes());
+    assertEquals(500, conn.used());
+    assertEquals(500, jvm.used());
+
+    // The first batch went to the free list and comes back empty
+    final BlobRowBatch reused = queue.newBlobBatch(null);
+    assertEquals(0, reused.bytes());
+
+    current = queue.take(current);
+    assertEquals(300, current.bytes());
+    assertEquals(300, conn.used());
+
+    queue.close();
+    assertEquals(0, conn.used());
+    assertEquals(0, jvm.used());
+  }
+
+  @Test
+  public void budgetReturnsToZeroWithManyBatches() throws Exception {
+    final BufferBudget budget = new BufferBudget(10_000);
+    final RowBatchQueue queue = new RowBatchQueue(2, 1 << 20, budget);
+    final int batches = 1000;
+
+    final Thread producer =
+        new Thread(
+            () -> {
+              try {
+                for (int i = 0; i < batches; i++) {
+                  queue.put(blobBatch(queue, 1000));
+                }
+              } catch (final Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    producer.start();
+
+    RowBatch current = null;
+    for (int i = 0; i < batches; i++) {
+      current = queue.take(current);
+      assertEquals(1000, current.bytes());
+    }
+
+    producer.join();
+    assertEquals(1000, budget.used());
+    queue.close();
+    assertEquals(0, budget.used());
+  }
+
+  @Test
+  public void closeReleasesQueuedBatches() throws Exception {
+    final BufferBudget budget = new BufferBudget(0);
+    final RowBatchQueue queue = new RowBatchQueue(4, 1 << 20, budget);
+    final ObjectRowBatch first = new ObjectRowBatch(new ArrayList<>(), 10);
+    queue.put(first);
+    queue.put(new ObjectRowBatch(new ArrayList<>(), 20));
+    assertSame(first, queue.take(null));
+
+    queue.close();
+    assertEquals(0, budget.used());
+    assertEquals(0, queue.bufferedBytes());
+
+    // Dropped once closed
+    queue.put(new ObjectRowBatch(new ArrayList<>(), 40));
+    assertEquals(0, budget.used());
+  }
+}
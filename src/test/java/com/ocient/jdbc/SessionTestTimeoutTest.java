@@ -0,0 +1,145 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionTestTimeoutTest {
+
+  private ServerSocket server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new ServerSocket(0);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+  }
+
+  private XGConnection connection() throws Exception {
+    return new XGConnection(
+        "user",
+        "pwd",
+        "127.0.0.1",
+        server.getLocalPort(),
+        "url",
+        "db",
+        "1.0.0",
+        "false",
+        XGConnection.Tls.OFF,
+        new Properties());
+  }
+
+  private static void setSocket(final XGConnection conn, final Socket sock) throws Exception {
+    final Field f = XGConnection.class.getDeclaredField("sock");
+    f.setAccessible(true);
+    f.set(conn, sock);
+  }
+
+  private XGConnection socketConnection() throws Exception {
+    final XGConnection conn = connection();
+    final Socket sock = new Socket("127.0.0.1", server.getLocalPort());
+    setSocket(conn, sock);
+    conn.in = new BufferedInputStream(sock.getInputStream());
+    conn.out = new BufferedOutputStream(sock.getOutputStream());
+    return conn;
+  }
+
+  private XGConnection channelConnection() throws Exception {
+    final XGConnection conn = connection();
+    final SocketChannel channel =
+        ChannelTransport.open("127.0.0.1", server.getLocalPort(), 5000, 64 * 1024);
+    setSocket(conn, channel.socket());
+    conn.in = new BufferedInputStream(new ChannelTransport.ChannelInputStream(channel));
+    conn.out = new BufferedOutputStream(new ChannelTransport.ChannelOutputStream(channel));
+    return conn;
+  }
+
+  // Reads the request and never answers
+  private void silentPeer() {
+    final Thread t =
+        new Thread(
+            () -> {
+              try (final Socket peer = server.accept()) {
+                final DataInputStream in = new DataInputStream(peer.getInputStream());
+                in.readFully(new byte[in.readInt()]);
+                in.read();
+              } catch (final Exception e) {
+                // The driver hung up
+              }
+            });
+    t.setDaemon(true);
+    t.start();
+  }
+
+  // Answers the request a byte every 200 ms, with a response that never ends
+  private void tricklingPeer() {
+    final Thread t =
+        new Thread(
+            () -> {
+              try (final Socket peer = server.accept()) {
+                final DataInputStream in = new DataInputStream(peer.getInputStream());
+                in.readFully(new byte[in.readInt()]);
+                final OutputStream out = peer.getOutputStream();
+                out.write(new byte[] {0, 0, 1, 0});
+                while (true) {
+                  out.write(0);
+                  out.flush();
+                  Thread.sleep(200);
+                }
+              } catch (final Exception e) {
+                // The driver hung up
+              }
+            });
+    t.setDaemon(true);
+    t.start();
+  }
+
+  private static long isValidMillis(final XGConnection conn, final int timeout) throws Exception {
+    final long start = System.nanoTime();
+    assertFalse(conn.isValid(timeout));
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+
+  @Test(timeout = 10000)
+  public void silentPeerSocket() throws Exception {
+    silentPeer();
+    final long millis = isValidMillis(socketConnection(), 1);
+    assertTrue(millis >= 900 && millis < 5000);
+  }
+
+  @Test(timeout = 10000)
+  public void silentPeerChannel() throws Exception {
+    silentPeer();
+    final long millis = isValidMillis(channelConnection(), 1);
+    assertTrue(millis >= 900 && millis < 5000);
+  }
+
+  @Test(timeout = 10000)
+  public void tricklingPeerSocket() throws Exception {
+    tricklingPeer();
+    final long millis = isValidMillis(socketConnection(), 1);
+    assertTrue(millis >= 900 && millis < 5000);
+  }
+
+  @Test(timeout = 10000)
+  public void tricklingPeerChannel() throws Exception {
+    tricklingPeer();
+    final long millis = isValidMillis(channelConnection(), 1);
+    assertTrue(millis >= 900 && millis < 5000);
+  }
+}
@@ -0,0 +1,154 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+  // A connection that never talks to a server, with statements on copies of it
+  private static XGConnection connection(final String user) throws Exception {
+    return new XGConnection(
+        user,
+        "pwd",
+        "127.0.0.1",
+        4050,
+        "url",
+        "db",
+        "1.0.0",
+        "false",
+        XGConnection.Tls.OFF,
+        new Properties()) {
+      @Override
+      public XGConnection copy() throws SQLException {
+        try {
+          return connection(user);
+        } catch (final Exception e) {
+          throw new SQLException(e);
+        }
+      }
+    };
+  }
+
+  @Test
+  public void pollReturnsWhatWasOffered() throws Exception {
+    final StatementCache<XGStatement> cache = new StatementCache<>(4);
+    final XGConnection conn = connection("a");
+    assertNull(cache.poll(conn));
+
+    final XGStatement stmt = new XGStatement(conn, false, false);
+    assertTrue(cache.offer(conn, stmt));
+    assertNull(cache.poll(connection("b")));
+    assertSame(stmt, cache.poll(conn));
+    assertNull(cache.poll(conn));
+  }
+
+  @Test
+  public void boundedPerConnection() throws Exception {
+    final StatementCache<XGStatement> cache = new StatementCache<>(2);
+    final XGConnection conn = connection("a");
+    assertTrue(cache.offer(conn, new XGStatement(conn, false, false)));
+    assertTrue(cache.offer(conn, new XGStatement(conn, false, false)));
+    assertFalse(cache.offer(conn, new XGStatement(conn, false, false)));
+
+    // Another connection has room of its own
+    final XGConnection other = connection("b");
+    assertTrue(cache.offer(other, new XGStatement(other, false, false)));
+
+    // Taking one makes room again
+    cache.poll(conn);
+    assertTrue(cache.offer(conn, new XGStatement(conn, false, false)));
+  }
+
+  @Test
+  public void evictClosesCachedStatements() throws Exception {
+    final StatementCache<XGStatement> cache = new StatementCache<>(4);
+    final XGConnection conn = connection("a");
+    final XGStatement stmt = new XGStatement(conn, false, false);
+    cache.offer(conn, stmt);
+
+    cache.evict(conn);
+    assertTrue(stmt.conn.isClosed());
+    assertNull(cache.poll(conn));
+  }
+
+  @Test
+  public void closedConnectionsAreNotCached() throws Exception {
+    final StatementCache<XGStatement> cache = new StatementCache<>(4);
+    final XGConnection conn = connection("a");
+    final XGStatement stmt = new XGStatement(conn, false, false);
+    conn.close();
+    assertFalse(cache.offer(conn, stmt));
+    assertNull(cache.poll(conn));
+  }
+
+  @Test
+  public void noStatementIsHandedOutTwice() throws Exception {
+    final int threads = 8;
+    final int rounds = 1000;
+    final StatementCache<XGStatement> cache = new StatementCache<>(16);
+    final XGConnection conn = connection("a");
+    final List<XGStatement> statements = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      statements.add(new XGStatement(conn, false, false));
+      cache.offer(conn, statements.get(i));
+    }
+
+    // Each thread takes a statement, checks nobody else holds it and gives it back
+    final Set<XGStatement> held = Collections.newSetFromMap(new IdentityHashMap<>());
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread(
+              () -> {
+                try {
+                  for (int i = 0; i < rounds; i++) {
+                    final XGStatement stmt = cache.poll(conn);
+                    if (stmt == null) {
+                      continue;
+                    }
+
+                    synchronized (held) {
+                      assertTrue(held.add(stmt));
+                    }
+
+                    synchronized (held) {
+                      held.remove(stmt);
+                    }
+
+                    assertTrue(cache.offer(conn, stmt));
+                  }
+                } catch (final Throwable e) {
+                  errors.add(e);
+                } finally {
+                  done.countDown();
+                }
+              })
+          .start();
+    }
+
+    done.await();
+    assertEquals(Collections.emptyList(), errors);
+
+    // All 16 are back in the cache exactly once
+    final Set<XGStatement> left = Collections.newSetFromMap(new IdentityHashMap<>());
+    XGStatement stmt;
+    while ((stmt = cache.poll(conn)) != null) {
+      assertTrue(left.add(stmt));
+    }
+
+    assertEquals(16, left.size());
+  }
+}
@@ -0,0 +1,89 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XGBulkLoaderTest {
+
+  // The statements the loader batched, and what executeBatch() was given
+  private final List<String> batched = new ArrayList<>();
+  private final List<String> executed = new ArrayList<>();
+  private XGStatement stmt;
+
+  @Before
+  public void setUp() throws Exception {
+    final XGConnection conn =
+        new XGConnection(
+            "user",
+            "pwd",
+            "127.0.0.1",
+            4050,
+            "url",
+            "db",
+            "1.0.0",
+            "false",
+            XGConnection.Tls.OFF,
+            new Properties()) {
+          @Override
+          public XGConnection copy() {
+            return this;
+          }
+        };
+
+    stmt =
+        new XGStatement(conn, false, false) {
+          @Override
+          public void addBatch(final String sql) {
+            batched.add(sql);
+          }
+
+          @Override
+          public int[] executeBatch() {
+            final int[] counts = new int[batched.size()];
+            Arrays.fill(counts, 1);
+            executed.addAll(batched);
+            batched.clear();
+            return counts;
+          }
+        };
+  }
+
+  private static void assertInvalid(final XGBulkLoader loader, final Object... values) {
+    try {
+      loader.addRow(values);
+      fail("addRow() took " + values.length + " values");
+    } catch (final SQLException e) {
+      assertEquals(SQLStates.INVALID_ARGUMENT.clone().getSQLState(), e.getSQLState());
+    }
+  }
+
+  @Test
+  public void emptyRowDoesntSetTheWidth() throws Exception {
+    final XGBulkLoader loader = new XGBulkLoader(stmt, "t", new String[0], 1024);
+    assertInvalid(loader);
+    loader.addRow(1, "a");
+    assertInvalid(loader, 2);
+    loader.addRow(3, "b");
+    loader.flush();
+    assertEquals(
+        Arrays.asList("INSERT INTO t VALUES (INT(1), 'a'), (INT(3), 'b')"), executed);
+  }
+
+  @Test
+  public void columnsSetTheWidth() throws Exception {
+    final XGBulkLoader loader = new XGBulkLoader(stmt, "t", new String[] {"x"}, 1024);
+    assertInvalid(loader);
+    assertInvalid(loader, 1, 2);
+    loader.addRow((Object) null);
+    loader.flush();
+    assertEquals(Arrays.asList("INSERT INTO t (x) VALUES (NULL)"), executed);
+  }
+}
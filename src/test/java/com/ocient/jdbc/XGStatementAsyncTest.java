@@ -0,0 +1,143 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XGStatementAsyncTest {
+
+  private final AtomicInteger cancels = new AtomicInteger();
+  private XGStatement stmt;
+
+  @Before
+  public void setUp() throws Exception {
+    // One async thread, so a second call waits for the first
+    final Properties properties = new Properties();
+    properties.setProperty("asyncThreads", "1");
+    final XGConnection conn =
+        new XGConnection(
+            "user",
+            "pwd",
+            "127.0.0.1",
+            4050,
+            "url",
+            "db",
+            "1.0.0",
+            "false",
+            XGConnection.Tls.OFF,
+            properties) {
+          @Override
+          public XGConnection copy() {
+            return this;
+          }
+        };
+
+    stmt =
+        new XGStatement(conn, false, false) {
+          @Override
+          public void cancel() {
+            cancels.incrementAndGet();
+          }
+        };
+  }
+
+  @Test
+  public void completesWithTheResult() throws Exception {
+    assertEquals(Integer.valueOf(42), stmt.runAsync(() -> 42).get(5, TimeUnit.SECONDS));
+    assertEquals(0, cancels.get());
+  }
+
+  @Test
+  public void failsWithTheException() throws Exception {
+    final CompletableFuture<Integer> future =
+        stmt.runAsync(
+            () -> {
+              throw SQLStates.INVALID_ARGUMENT.clone();
+            });
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("the future completed normally");
+    } catch (final ExecutionException e) {
+      assertEquals(
+          SQLStates.INVALID_ARGUMENT.clone().getSQLState(),
+          ((SQLException) e.getCause()).getSQLState());
+    }
+  }
+
+  @Test
+  public void cancelledBeforeStartingNeverRuns() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CompletableFuture<Integer> blocker =
+        stmt.runAsync(
+            () -> {
+              release.await();
+              return 1;
+            });
+    final AtomicBoolean ran = new AtomicBoolean();
+    final CompletableFuture<Integer> queued =
+        stmt.runAsync(
+            () -> {
+              ran.set(true);
+              return 2;
+            });
+
+    assertTrue(queued.cancel(true));
+    // It never started, so there is no query to cancel
+    assertEquals(0, cancels.get());
+    release.countDown();
+    assertEquals(Integer.valueOf(1), blocker.get(5, TimeUnit.SECONDS));
+
+    // Anything queued behind it has run by now
+    stmt.runAsync(() -> 3).get(5, TimeUnit.SECONDS);
+    assertFalse(ran.get());
+    assertEquals(0, cancels.get());
+  }
+
+  @Test
+  public void cancelWhileRunningCancelsTheQuery() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AutoCloseableResult result = new AutoCloseableResult();
+    final CompletableFuture<AutoCloseableResult> future =
+        stmt.runAsync(
+            () -> {
+              started.countDown();
+              release.await();
+              return result;
+            });
+
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertTrue(future.cancel(true));
+    // The query is cancelled on a worker thread
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (cancels.get() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, cancels.get());
+
+    // A result that shows up anyway is closed, since nobody can get it
+    release.countDown();
+    assertTrue(result.closed.await(5, TimeUnit.SECONDS));
+  }
+
+  private static final class AutoCloseableResult implements AutoCloseable {
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+  }
+}
@@ -0,0 +1,270 @@
+package com.ocient.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.ocient.jdbc.proto.ClientWireProtocol.ConfirmationResponse;
+import com.ocient.jdbc.proto.ClientWireProtocol.ExecuteUpdateResponse;
+import com.ocient.jdbc.proto.ClientWireProtocol.Request;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XGStatementBatchTest {
+
+  private ServerSocket server;
+  // The statements the server got, in order, and which of them were forced
+  private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+  private final List<Boolean> forced = Collections.synchronizedList(new ArrayList<>());
+
+  @Before
+  public void setUp() throws Exception {
+    server = new ServerSocket(0);
+    final Thread t =
+        new Thread(
+            () -> {
+              try (final Socket peer = server.accept()) {
+                serve(peer);
+              } catch (final Exception e) {
+                // The test is over
+              }
+            });
+    t.setDaemon(true);
+    t.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+  }
+
+  // Answers each update with its length as the row count. SQL containing "fail"
+  // gets an error, SQL containing "drop" closes the connection, and SQL
+  // containing "hang" is never answered.
+  private void serve(final Socket peer) throws IOException {
+    final DataInputStream in = new DataInputStream(peer.getInputStream());
+    final DataOutputStream out = new DataOutputStream(peer.getOutputStream());
+    while (true) {
+      final byte[] frame = new byte[in.readInt()];
+      in.readFully(frame);
+      final Request request = Request.parseFrom(frame);
+      final String sql = request.getExecuteUpdate().getSql();
+      received.add(sql);
+      forced.add(request.getExecuteUpdate().getForce());
+      if (sql.contains("drop")) {
+        return;
+      }
+
+      if (sql.contains("hang")) {
+        continue;
+      }
+
+      final ConfirmationResponse.Builder response = ConfirmationResponse.newBuilder();
+      if (sql.contains("fail")) {
+        response
+            .setType(ConfirmationResponse.ResponseType.RESPONSE_ERROR)
+            .setReason("failed " + sql)
+            .setSqlState("42000")
+            .setVendorCode(-1);
+      } else {
+        response.setType(ConfirmationResponse.ResponseType.RESPONSE_OK);
+      }
+
+      final ExecuteUpdateResponse eur =
+          ExecuteUpdateResponse.newBuilder()
+              .setResponse(response)
+              .setUpdateRowCount(sql.length())
+              .build();
+      out.writeInt(eur.getSerializedSize());
+      eur.writeTo(out);
+      out.flush();
+    }
+  }
+
+  private XGStatement statement(final int batchRows) throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("batchRows", Integer.toString(batchRows));
+    final XGConnection conn =
+        new XGConnection(
+            "user",
+            "pwd",
+            "127.0.0.1",
+            server.getLocalPort(),
+            "url",
+            "db",
+            "1.0.0",
+            "false",
+            XGConnection.Tls.OFF,
+            properties) {
+          @Override
+          public XGConnection copy() {
+            return this;
+          }
+
+          // Hangs up, which wakes a reader, but never comes back
+          @Override
+          public void reconnect() throws IOException {
+            in.close();
+            throw new IOException("no server to reconnect to");
+          }
+        };
+
+    final Socket sock = new Socket("127.0.0.1", server.getLocalPort());
+    final Field f = XGConnection.class.getDeclaredField("sock");
+    f.setAccessible(true);
+    f.set(conn, sock);
+    conn.in = new BufferedInputStream(sock.getInputStream());
+    conn.out = new BufferedOutputStream(sock.getOutputStream());
+    return new XGStatement(conn, false, false);
+  }
+
+  @Test
+  public void countsPerStatement() throws Exception {
+    final XGStatement stmt = statement(3);
+    final List<String> sql = new ArrayList<>();
+    for (int i = 0; i < 7; i++) {
+      sql.add("insert into t values (" + (i * 1000) + ")");
+      stmt.addBatch(sql.get(i));
+    }
+
+    final int[] counts = stmt.executeBatch();
+    final int[] expected = new int[7];
+    for (int i = 0; i < 7; i++) {
+      expected[i] = sql.get(i).length();
+    }
+
+    assertArrayEquals(expected, counts);
+    assertEquals(sql, received);
+    // The first statement of each burst of 3 waits for its answer, the rest are
+    // pipelined behind it
+    for (int i = 0; i < 7; i++) {
+      assertEquals(i % 3 != 0, forced.get(i));
+    }
+
+    // The batch is empty again
+    assertEquals(0, stmt.executeBatch().length);
+  }
+
+  @Test
+  public void failuresDontStopTheBatch() throws Exception {
+    final XGStatement stmt = statement(10);
+    stmt.addBatch("insert 1");
+    stmt.addBatch("fail 2");
+    stmt.addBatch("insert 3");
+    stmt.addBatch("fail 4");
+    stmt.addBatch("insert 5");
+    try {
+      stmt.executeBatch();
+      fail("executeBatch() didn't report the failed statements");
+    } catch (final BatchUpdateException e) {
+      assertArrayEquals(
+          new int[] {8, Statement.EXECUTE_FAILED, 8, Statement.EXECUTE_FAILED, 8},
+          e.getUpdateCounts());
+      assertEquals("42000", e.getSQLState());
+      assertEquals("failed fail 2", e.getMessage());
+      final SQLException next = e.getNextException();
+      assertNotNull(next);
+      assertEquals("failed fail 4", next.getMessage());
+      assertNull(next.getNextException());
+    }
+
+    assertEquals(5, received.size());
+  }
+
+  @Test
+  public void lostConnectionReportsWhatFinished() throws Exception {
+    final XGStatement stmt = statement(2);
+    stmt.addBatch("insert 1");
+    stmt.addBatch("insert 2");
+    stmt.addBatch("insert 3");
+    stmt.addBatch("drop 4");
+    stmt.addBatch("insert 5");
+    try {
+      stmt.executeBatch();
+      fail("executeBatch() succeeded without a server");
+    } catch (final BatchUpdateException e) {
+      // Only the statements before the burst that was cut off are reported
+      assertArrayEquals(new int[] {8, 8}, e.getUpdateCounts());
+    }
+  }
+
+  @Test
+  public void clearBatch() throws Exception {
+    final XGStatement stmt = statement(10);
+    stmt.addBatch("insert 1");
+    stmt.clearBatch();
+    assertEquals(0, stmt.executeBatch().length);
+    assertEquals(0, received.size());
+  }
+
+  @Test(timeout = 10000)
+  public void timeoutStopsTheBatch() throws Exception {
+    final XGStatement stmt = statement(1);
+    stmt.setQueryTimeout(1);
+    stmt.addBatch("insert 1");
+    stmt.addBatch("hang 2");
+    stmt.addBatch("insert 3");
+    final long start = System.nanoTime();
+    try {
+      stmt.executeBatch();
+      fail("executeBatch() didn't time out");
+    } catch (final BatchUpdateException e) {
+      assertTrue((System.nanoTime() - start) / 1_000_000 >= 900);
+      assertTrue(e.getCause() instanceof SQLTimeoutException);
+      assertArrayEquals(new int[] {8}, e.getUpdateCounts());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void cancelStopsTheBatch() throws Exception {
+    final XGStatement stmt = statement(1);
+    stmt.addBatch("insert 1");
+    stmt.addBatch("hang 2");
+    stmt.addBatch("insert 3");
+    final Thread canceller =
+        new Thread(
+            () -> {
+              try {
+                while (received.size() < 2) {
+                  Thread.sleep(10);
+                }
+                stmt.cancel();
+              } catch (final Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    canceller.start();
+    try {
+      stmt.executeBatch();
+      fail("executeBatch() wasn't cancelled");
+    } catch (final BatchUpdateException e) {
+      assertEquals("Query cancelled", e.getMessage());
+      assertArrayEquals(new int[] {8}, e.getUpdateCounts());
+    }
+
+    canceller.join();
+    assertFalse(Thread.currentThread().isInterrupted());
+    assertEquals(2, received.size());
+  }
+}